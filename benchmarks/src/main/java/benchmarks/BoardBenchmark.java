@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Board;
+import game.Move;
+
+/**
+ * Board operations the search calls at every node. The win checks cycle through the valid
+ * moves of each corpus position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+	@Param({ "opening", "midgame", "late" })
+	public String position;
+
+	private Board board;
+	private char player;
+	private Move[] moves;	// the player's valid moves, played in turn
+	private int[] cells;	// the same moves as cells
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		board = Positions.get(position);
+		player = Positions.toMove(board);
+		moves = board.getSuccessorMoves(player).toArray(new Move[0]);
+		cells = new int[moves.length];
+		for(int i = 0; i < moves.length; i++) {
+			cells[i] = board.getGeometry().cellAt(moves[i].getRow(), moves[i].getCol());
+		}
+	}
+
+	@Benchmark
+	public ArrayList<Move> getSuccessorMoves()
+	{
+		return board.getSuccessorMoves(player);
+	}
+
+	/**
+	 * The search's win check: getWinner reads what makeMove computed, so both are timed, along
+	 * with the unmakeMove that restores the position.
+	 * @return
+	 */
+	@Benchmark
+	public char makeMoveGetWinner()
+	{
+		int cell = cells[next];
+		next = next + 1 == cells.length ? 0 : next + 1;
+		board.makeMove(cell, player);
+		char winner = board.getWinner();
+		board.unmakeMove(cell);
+		return winner;
+	}
+
+	/**
+	 * The game loop's win check: a validated placePiece on a copy, then getWinner.
+	 * @return
+	 */
+	@Benchmark
+	public char placePieceGetWinner()
+	{
+		Move move = moves[next];
+		next = next + 1 == moves.length ? 0 : next + 1;
+		Board after = new Board(board);
+		after.placePiece(move.getRow(), move.getCol(), player);
+		return after.getWinner();
+	}
+
+	@Benchmark
+	public Board copy()
+	{
+		return new Board(board);
+	}
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Board;
+import utils.Evaluator;
+import utils.Heuristics;
+import utils.IncrementalEvaluator;
+import utils.PieceSequence;
+
+/**
+ * Leaf evaluation, by each of the evaluators MinimaxPlayer can use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeuristicsBenchmark {
+
+	@Param({ "opening", "midgame", "late" })
+	public String position;
+
+	private Board board;
+	private char player;
+	private IncrementalEvaluator incremental;
+
+	@Setup
+	public void setup()
+	{
+		board = Positions.get(position);
+		player = Positions.toMove(board);
+		incremental = new IncrementalEvaluator(board);
+	}
+
+	@Benchmark
+	public int evaluate()
+	{
+		return Heuristics.evaluate(board, player);
+	}
+
+	@Benchmark
+	public HashSet<PieceSequence> getAllSequences()
+	{
+		return Heuristics.getAllSequences(board, player);
+	}
+
+	@Benchmark
+	public int evaluatePatterns()
+	{
+		return Evaluator.PATTERNS.evaluate(board, player);
+	}
+
+	@Benchmark
+	public int evaluateIncremental()
+	{
+		return incremental.evaluate(player);
+	}
+}
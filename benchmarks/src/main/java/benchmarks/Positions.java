@@ -0,0 +1,72 @@
+package benchmarks;
+
+import game.Board;
+import utils.Constants;
+
+/**
+ * Fixed corpus of positions the benchmarks run over, so results compare across engine changes.
+ * Rows are top to bottom, '.' is an empty cell. X moves when both players have as many pieces.
+ */
+public class Positions {
+
+	// the position Main starts every game from
+	private static final String[] OPENING = {
+			"......",
+			"......",
+			"..OX..",
+			"......",
+			"......" };
+
+	private static final String[] MIDGAME = {
+			"......",
+			".XXOO.",
+			"..OXO.",
+			".OX.X.",
+			"......" };
+
+	private static final String[] LATE = {
+			"..OX..",
+			"XXXOO.",
+			".OOXOO",
+			".OXXX.",
+			"..OX.." };
+
+	/**
+	 * Builds a named corpus position.
+	 * @param name - "opening", "midgame" or "late"
+	 * @return a new board
+	 */
+	public static Board get(String name)
+	{
+		switch(name) {
+		case "opening": return parse(OPENING);
+		case "midgame": return parse(MIDGAME);
+		case "late": return parse(LATE);
+		default: throw new IllegalArgumentException("Unknown position: " + name);
+		}
+	}
+
+	/**
+	 * Returns the player to move on a corpus board.
+	 * @param board
+	 * @return 'X' or 'O'
+	 */
+	public static char toMove(Board board)
+	{
+		int x = Long.bitCount(board.getPlayerBits('X'));
+		int o = Long.bitCount(board.getPlayerBits('O'));
+		return x == o ? 'X' : 'O';
+	}
+
+	private static Board parse(String[] rows)
+	{
+		Board board = new Board();
+		for(int row = 0; row < Constants.ROWS; row++) {
+			for(int col = 0; col < Constants.COLS; col++) {
+				char c = rows[row].charAt(col);
+				if(c == 'X' || c == 'O') board.makeMove(row * Constants.COLS + col, c);
+			}
+		}
+		return board;
+	}
+}
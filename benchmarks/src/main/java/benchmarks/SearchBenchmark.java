@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Board;
+import game.Move;
+import players.MinimaxPlayer;
+import utils.TranspositionTable;
+
+/**
+ * One full MinimaxPlayer move per iteration, over the corpus and depths 2-6.
+ * Each search must start from an empty transposition table, and clearing one costs about as much
+ * as a shallow search, so every iteration times a single search and the table is cleared between
+ * iterations, outside the timed region. Many short iterations average out the timer's noise.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3000)
+@Measurement(iterations = 3000)
+@Fork(1)
+public class SearchBenchmark {
+
+	@Param({ "opening", "midgame", "late" })
+	public String position;
+
+	@Param({ "2", "3", "4", "5", "6" })
+	public int depth;
+
+	private Board board;
+	private MinimaxPlayer player;
+
+	@Setup
+	public void setup()
+	{
+		board = Positions.get(position);
+		player = new MinimaxPlayer(Positions.toMove(board), depth);
+		player.setTranspositionTable(new TranspositionTable(16));
+	}
+
+	@Setup(Level.Iteration)
+	public void clearTable()
+	{
+		player.getTranspositionTable().clear();
+	}
+
+	@Benchmark
+	public Move search()
+	{
+		return player.makeMove(board);
+	}
+}
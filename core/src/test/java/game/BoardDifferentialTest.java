@@ -0,0 +1,184 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the bitboard Board with the char-grid rules it replaced, move by move over random
+ * games: valid moves (out-of-range probes included), successors and winner.
+ *
+ * The one intended difference is the win rule. The char grid only counted a line of exactly
+ * the win length, so a longer line made by filling a gap did not win; Board counts any line
+ * of the win length or more.
+ */
+class BoardDifferentialTest {
+	private static final Geometry[] GEOMETRIES = {
+		Geometry.STANDARD, Geometry.of(4, 4, 3), Geometry.of(8, 8, 5), Geometry.of(8, 16, 4), Geometry.of(3, 9, 3)
+	};
+
+	private static final int GAMES = 400;
+
+	@Test
+	void matchesCharGrid()
+	{
+		Random random = new Random(11);
+		int longerLines = 0;
+		for(Geometry geometry : GEOMETRIES) {
+			for(int game = 0; game < GAMES; game++) {
+				Board board = new Board(geometry);
+				Grid grid = new Grid(geometry);
+				char player = 'X';
+				while(true) {
+					for(char p : new char[] { 'X', 'O' }) {
+						for(int row = -1; row <= geometry.getRows(); row++) {
+							for(int col = -1; col <= geometry.getCols(); col++) {
+								assertEquals(grid.isValidMove(row, col, p), board.isValidMove(row, col, p));
+							}
+						}
+						assertEquals(grid.successors(p), board.getSuccessorMoves(p));
+					}
+
+					char winner = board.getWinner();
+					if(winner != grid.winner()) {
+						// only a line longer than the win length may tell the two apart
+						assertTrue(winner == 'X' || winner == 'O');
+						assertTrue(grid.longestLine(winner) > geometry.getWinLength());
+						longerLines++;
+					}
+					if(board.isTerminal()) break;
+
+					if(!board.hasValidMove(player)) {
+						player = player == 'X' ? 'O' : 'X';
+						continue;
+					}
+					List<Move> moves = board.getSuccessorMoves(player);
+					Move move = moves.get(random.nextInt(moves.size()));
+					board.placePiece(move.getRow(), move.getCol(), player);
+					grid.place(move.getRow(), move.getCol(), player);
+					player = player == 'X' ? 'O' : 'X';
+				}
+			}
+		}
+		// the random games do reach the changed case
+		assertTrue(longerLines > 0);
+	}
+
+	@Test
+	void lineLongerThanWinConditionWins()
+	{
+		// XX.XX on the top row, joined through (1,2), then the gap filled
+		Board board = new Board();
+		Grid grid = new Grid(Geometry.STANDARD);
+		int[][] cells = { { 0, 0 }, { 0, 1 }, { 1, 2 }, { 0, 3 }, { 0, 4 } };
+		for(int[] cell : cells) {
+			assertTrue(board.placePiece(cell[0], cell[1], 'X'));
+			grid.place(cell[0], cell[1], 'X');
+		}
+		assertEquals('\0', board.getWinner());
+
+		assertTrue(board.placePiece(0, 2, 'X'));
+		grid.place(0, 2, 'X');
+		assertEquals('X', board.getWinner());
+		assertEquals('\0', grid.winner());
+	}
+
+	/**
+	 * The baseline rules on a char grid, written for clarity rather than speed.
+	 */
+	private static class Grid {
+		private final Geometry geometry;
+		private final char[][] cells;
+
+		Grid(Geometry geometry)
+		{
+			this.geometry = geometry;
+			cells = new char[geometry.getRows()][geometry.getCols()];
+		}
+
+		/**
+		 * A move goes on an empty cell, next to one of the player's pieces unless it is their first.
+		 */
+		boolean isValidMove(int row, int col, char player)
+		{
+			if(!geometry.isInBounds(row, col) || cells[row][col] != '\0') return false;
+			boolean first = true;
+			boolean adjacent = false;
+			for(int r = 0; r < geometry.getRows(); r++) {
+				for(int c = 0; c < geometry.getCols(); c++) {
+					if(cells[r][c] != player) continue;
+					first = false;
+					if(Math.abs(r - row) <= 1 && Math.abs(c - col) <= 1) adjacent = true;
+				}
+			}
+			return first || adjacent;
+		}
+
+		List<Move> successors(char player)
+		{
+			List<Move> moves = new ArrayList<Move>();
+			for(int row = 0; row < geometry.getRows(); row++) {
+				for(int col = 0; col < geometry.getCols(); col++) {
+					if(isValidMove(row, col, player)) moves.add(new Move(row, col, player));
+				}
+			}
+			return moves;
+		}
+
+		void place(int row, int col, char player)
+		{
+			cells[row][col] = player;
+		}
+
+		/**
+		 * Returns 'X' or 'O' for a line of exactly the win length, 'd' when neither player can
+		 * move, else '\0'.
+		 */
+		char winner()
+		{
+			boolean x = hasLine('X', geometry.getWinLength());
+			boolean o = hasLine('O', geometry.getWinLength());
+			if(x && o) return 'd';
+			if(x) return 'X';
+			if(o) return 'O';
+			return successors('X').isEmpty() && successors('O').isEmpty() ? 'd' : '\0';
+		}
+
+		/**
+		 * Returns the length of the player's longest line.
+		 */
+		int longestLine(char player)
+		{
+			int longest = 0;
+			for(int length = 1; length <= geometry.getMaxLineLength(); length++) {
+				if(hasLine(player, length)) longest = length;
+			}
+			return longest;
+		}
+
+		/**
+		 * Checks for a maximal line of exactly the given length, as the old sequence scan did.
+		 */
+		private boolean hasLine(char player, int length)
+		{
+			for(int row = 0; row < geometry.getRows(); row++) {
+				for(int col = 0; col < geometry.getCols(); col++) {
+					if(cells[row][col] != player) continue;
+					for(int[] d : Geometry.DIRECTIONS) {
+						// start only at the first piece of a line
+						if(geometry.isInBounds(row - d[0], col - d[1]) && cells[row - d[0]][col - d[1]] == player) continue;
+						int n = 0;
+						for(int r = row, c = col; geometry.isInBounds(r, c) && cells[r][c] == player; r += d[0], c += d[1]) n++;
+						if(n == length) return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+}
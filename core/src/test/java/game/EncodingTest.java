@@ -0,0 +1,123 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips of the packed and FEN encodings of Board and GameState, on random positions.
+ */
+class EncodingTest {
+	// boards of up to Board.MAX_PACKED_CELLS cells
+	private static final Geometry[] PACKABLE = {
+		Geometry.STANDARD, Geometry.of(4, 4, 3), Geometry.of(5, 5, 4), Geometry.of(3, 7, 3), Geometry.of(1, 31, 4)
+	};
+
+	// every shape FEN handles, one- and two-word boards alike
+	private static final Geometry[] ALL = {
+		Geometry.STANDARD, Geometry.of(4, 4, 3), Geometry.of(8, 8, 5), Geometry.of(7, 10, 4),
+		Geometry.of(9, 9, 5), Geometry.of(8, 16, 4), Geometry.of(10, 12, 5)
+	};
+
+	private static final int GAMES = 200;
+
+	@Test
+	void boardPackRoundTrip()
+	{
+		Random random = new Random(1);
+		for(Geometry geometry : PACKABLE) {
+			Board copy = new Board(geometry);
+			for(int game = 0; game < GAMES; game++) {
+				for(GameState state : RandomGames.play(geometry, random)) {
+					Board board = state.getBoard();
+					long packed = board.pack();
+					copy.unpack(packed);
+					assertSameBoard(board, copy);
+					assertEquals(packed, copy.pack());
+				}
+			}
+		}
+	}
+
+	@Test
+	void boardFenRoundTrip()
+	{
+		Random random = new Random(2);
+		for(Geometry geometry : ALL) {
+			Board copy = new Board(geometry);
+			for(int game = 0; game < GAMES; game++) {
+				for(GameState state : RandomGames.play(geometry, random)) {
+					Board board = state.getBoard();
+					String fen = board.toFen();
+					copy.loadFen(fen, 0, fen.length());
+					assertSameBoard(board, copy);
+					assertEquals(fen, copy.toFen());
+				}
+			}
+		}
+	}
+
+	@Test
+	void stateRoundTripKeepsSideToMove()
+	{
+		Random random = new Random(3);
+		for(Geometry geometry : ALL) {
+			boolean packable = geometry.getCells() <= Board.MAX_PACKED_CELLS;
+			for(int game = 0; game < GAMES; game++) {
+				for(GameState state : RandomGames.play(geometry, random)) {
+					for(char player : new char[] { 'X', 'O' }) {
+						GameState original = new GameState(state.getBoard(), player);
+
+						GameState parsed = GameState.fromFen(original.toFen());
+						assertEquals(geometry, parsed.getGeometry());
+						assertEquals(player, parsed.getCurrentPlayer());
+						assertEquals(original.getHash(), parsed.getHash());
+						assertSameBoard(original.getBoard(), parsed.getBoard());
+						assertEquals(original.toFen(), parsed.toFen());
+
+						if(packable) {
+							GameState unpacked = GameState.fromPacked(original.pack(), geometry);
+							assertEquals(player, unpacked.getCurrentPlayer());
+							assertEquals(original.getHash(), unpacked.getHash());
+							assertSameBoard(original.getBoard(), unpacked.getBoard());
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void rejectsWhatIsNotAnEncoding()
+	{
+		Board board = new Board();
+		int cells = board.getGeometry().getCells();
+		assertThrows(IllegalArgumentException.class, () -> board.unpack(1L | (1L << cells)));
+		assertThrows(IllegalArgumentException.class, () -> board.unpack(1L << (2 * cells)));
+		assertThrows(IllegalStateException.class, () -> new Board(Geometry.of(8, 8, 5)).pack());
+		assertThrows(IllegalArgumentException.class, () -> board.loadFen("6/6/6/6", 0, 7));
+		assertThrows(IllegalArgumentException.class, () -> board.loadFen("7/6/6/6/6", 0, 9));
+		assertThrows(IllegalArgumentException.class, () -> GameState.fromFen("6/6/2OX2/6/6 Z"));
+		assertThrows(IllegalArgumentException.class, () -> GameState.fromFen("6/6/2Q3/6/6 X"));
+		assertThrows(IllegalArgumentException.class, () -> new GameState(board, 'X').loadFen("6/6/2OX2/6/6 X 5"));
+	}
+
+	/**
+	 * Checks that two boards hold the same pieces, hash and result.
+	 * @param expected
+	 * @param actual
+	 */
+	private static void assertSameBoard(Board expected, Board actual)
+	{
+		for(char player : new char[] { 'X', 'O' }) {
+			for(int word = 0; word < 2; word++) {
+				assertEquals(expected.getPlayerBits(player, word), actual.getPlayerBits(player, word));
+			}
+		}
+		assertEquals(expected.getHash(), actual.getHash());
+		assertEquals(expected.getWinner(), actual.getWinner());
+	}
+}
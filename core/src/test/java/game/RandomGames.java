@@ -0,0 +1,38 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays seeded random games, for tests that check a property on many positions.
+ */
+public class RandomGames {
+
+	/**
+	 * Plays random valid moves from the empty board to the end of the game, and returns every
+	 * position on the way, the final one included. A player with no valid move passes.
+	 * @param geometry - the board's shape
+	 * @param random
+	 * @return a copy of each position, with the player to move
+	 */
+	public static List<GameState> play(Geometry geometry, Random random)
+	{
+		List<GameState> positions = new ArrayList<GameState>();
+		Board board = new Board(geometry);
+		char player = 'X';
+		positions.add(new GameState(new Board(board), player));
+		while(!board.isTerminal()) {
+			if(!board.hasValidMove(player)) {
+				player = player == 'X' ? 'O' : 'X';
+				continue;
+			}
+			List<Move> moves = board.getSuccessorMoves(player);
+			Move move = moves.get(random.nextInt(moves.size()));
+			board.placePiece(move.getRow(), move.getCol(), player);
+			player = player == 'X' ? 'O' : 'X';
+			positions.add(new GameState(new Board(board), player));
+		}
+		return positions;
+	}
+}
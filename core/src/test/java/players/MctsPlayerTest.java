@@ -0,0 +1,86 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import game.Board;
+import game.GameState;
+import game.Geometry;
+import game.Move;
+import game.RandomGames;
+
+/**
+ * Checks that MctsPlayer sizes its arena safely, only plays valid moves and passes when it has none.
+ */
+class MctsPlayerTest {
+
+	@Test
+	void rejectsArenasTooSmallForAnyRoot()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new MctsPlayer('X', Geometry.MAX_CELLS));
+		new MctsPlayer('X', Geometry.MAX_CELLS + 1);
+	}
+
+	@Test
+	void playsValidMovesFromTheSmallestArena()
+	{
+		// the root's children fill the arena, so every playout starts below the root
+		checkValidMoves(new MctsPlayer('X', Geometry.MAX_CELLS + 1), new MctsPlayer('O', Geometry.MAX_CELLS + 1));
+	}
+
+	@Test
+	void playsValidMovesWithSeveralThreads()
+	{
+		MctsPlayer x = new MctsPlayer('X', 1 << 16);
+		MctsPlayer o = new MctsPlayer('O', 1 << 16);
+		x.setThreads(3);
+		o.setThreads(3);
+		checkValidMoves(x, o);
+	}
+
+	@Test
+	void passesWithNoValidMove()
+	{
+		// after X takes (2,2), O is boxed in with the game still going on
+		Board board = GameState.fromFen("OX4/XX4/6/6/6 X").getBoard();
+		board.placePiece(2, 2, 'X');
+		assertFalse(board.isTerminal());
+		assertFalse(board.hasValidMove('O'));
+
+		MctsPlayer o = new MctsPlayer('O', 1 << 16);
+		o.setPlayoutBudget(300);
+		assertNull(o.makeMove(new Board(board)));
+		assertEquals(0, o.getPlayouts());
+	}
+
+	/**
+	 * Asks both players for a move in positions of random games on several boards, and
+	 * checks each move is valid and every playout of the budget ran.
+	 * @param x
+	 * @param o
+	 */
+	private static void checkValidMoves(MctsPlayer x, MctsPlayer o)
+	{
+		Random random = new Random(31);
+		for(Geometry geometry : new Geometry[] { Geometry.STANDARD, Geometry.of(8, 8, 5), Geometry.of(8, 16, 4) }) {
+			for(GameState state : RandomGames.play(geometry, random)) {
+				Board board = state.getBoard();
+				char player = state.getCurrentPlayer();
+				if(board.isTerminal() || !board.hasValidMove(player)) continue;
+
+				MctsPlayer engine = player == 'X' ? x : o;
+				engine.setPlayoutBudget(300);
+				Move move = engine.makeMove(new Board(board));
+				assertTrue(board.isValidMove(move.getRow(), move.getCol(), player), board.toFen() + " " + move);
+				if(board.getSuccessorMoves(player).size() > 1) assertEquals(300, engine.getPlayouts());
+			}
+		}
+	}
+}
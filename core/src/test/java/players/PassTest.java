@@ -0,0 +1,95 @@
+package players;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import game.Board;
+import game.GameState;
+import game.Move;
+
+/**
+ * Searches positions where a player has no valid move and must pass, and checks that the
+ * scores stay between a loss (-1000) and a win (1000).
+ */
+class PassTest {
+	// O's only piece is boxed in: after any X move, O passes
+	private static final String MIN_PASSES = "OX4/XX4/6/6/6 X";
+
+	// X's only move, to (2,2), boxes X in: unless O wins at once, X passes
+	private static final String MAX_PASSES = "XOO3/O1O3/OOO3/6/6 X";
+
+	@Test
+	void minimizingPlayerPasses()
+	{
+		assertPassForced(MIN_PASSES, 'O');
+		for(int depth = 1; depth <= 5; depth++) assertScoreInBounds(MIN_PASSES, depth);
+	}
+
+	@Test
+	void maximizingPlayerPasses()
+	{
+		Board board = GameState.fromFen(MAX_PASSES).getBoard();
+		board.placePiece(1, 1, 'X');
+		assertFalse(board.isTerminal());
+		assertFalse(board.hasValidMove('X'));
+		for(int depth = 1; depth <= 5; depth++) assertScoreInBounds(MAX_PASSES, depth);
+	}
+
+	@Test
+	void searchWithNoValidMoveReturnsNullMove()
+	{
+		// after X takes (2,2), O is boxed in with the game still going on
+		Board board = GameState.fromFen(MIN_PASSES).getBoard();
+		board.placePiece(2, 2, 'X');
+		assertFalse(board.isTerminal());
+		assertFalse(board.hasValidMove('O'));
+		for(boolean alphaBeta : new boolean[] { true, false }) {
+			MinimaxPlayer engine = new MinimaxPlayer('O', 4, alphaBeta);
+			engine.setPondering(true);
+			try {
+				assertNull(engine.search(new Board(board)).getMove());
+				assertNull(engine.makeMove(new Board(board)));
+			}
+			finally {
+				engine.setPondering(false);
+			}
+		}
+	}
+
+	/**
+	 * Checks that the player has no valid move after any move of the side to move.
+	 * @param fen
+	 * @param passer
+	 */
+	private static void assertPassForced(String fen, char passer)
+	{
+		GameState state = GameState.fromFen(fen);
+		for(Move move : state.getBoard().getSuccessorMoves(state.getCurrentPlayer())) {
+			Board next = new Board(state.getBoard());
+			next.placePiece(move.getRow(), move.getCol(), move.getPlayer());
+			if(!next.isTerminal()) assertFalse(next.hasValidMove(passer));
+		}
+	}
+
+	/**
+	 * Searches the position with alpha-beta and with plain minimax and checks both scores.
+	 * @param fen
+	 * @param depth
+	 */
+	private static void assertScoreInBounds(String fen, int depth)
+	{
+		GameState state = GameState.fromFen(fen);
+		for(boolean alphaBeta : new boolean[] { true, false }) {
+			MinimaxPlayer engine = new MinimaxPlayer(state.getCurrentPlayer(), depth, alphaBeta);
+			SearchStats stats = engine.search(new Board(state.getBoard()));
+			assertNotNull(stats.getMove());
+			assertTrue(stats.hasScore());
+			int score = stats.getScore();
+			assertTrue(score >= -1000 && score <= 1000, fen + " depth " + depth + " alpha-beta " + alphaBeta + " scored " + score);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import game.Board;
+import game.GameState;
+import game.Geometry;
+import game.RandomGames;
+
+/**
+ * Checks that the table-driven evaluators score random positions exactly as Heuristics.evaluate does.
+ */
+class EvaluatorConsistencyTest {
+	private static final Geometry[] GEOMETRIES = {
+		Geometry.STANDARD, Geometry.of(4, 4, 3), Geometry.of(8, 8, 5), Geometry.of(8, 16, 4)
+	};
+
+	private static final int GAMES = 400;
+
+	@Test
+	void patternsMatchSequences()
+	{
+		Random random = new Random(21);
+		for(Geometry geometry : GEOMETRIES) {
+			for(int game = 0; game < GAMES; game++) {
+				for(GameState state : RandomGames.play(geometry, random)) {
+					Board board = state.getBoard();
+					if(board.isTerminal()) continue;
+
+					for(char player : new char[] { 'X', 'O' }) {
+						assertEquals(Evaluator.SEQUENCES.evaluate(board, player), Evaluator.PATTERNS.evaluate(board, player));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import game.Board;
+import game.Geometry;
+import game.Move;
+
+/**
+ * Walks random games through IncrementalEvaluator.place, unwinds them with remove, and checks
+ * the tracked counts against a fresh evaluator and Heuristics.evaluate at every step.
+ */
+class IncrementalEvaluatorTest {
+	private static final Geometry[] GEOMETRIES = {
+		Geometry.STANDARD, Geometry.of(4, 4, 3), Geometry.of(8, 8, 5), Geometry.of(8, 16, 4)
+	};
+
+	private static final int GAMES = 400;
+
+	@Test
+	void placeAndRemoveMatchFreshCounts()
+	{
+		Random random = new Random(41);
+		for(Geometry geometry : GEOMETRIES) {
+			for(int game = 0; game < GAMES; game++) {
+				Board board = new Board(geometry);
+				IncrementalEvaluator evaluator = new IncrementalEvaluator(board);
+				List<Move> played = new ArrayList<Move>();
+				char player = 'X';
+
+				// play forward to the end of the game, passing when a player has no move
+				while(!board.isTerminal()) {
+					if(board.hasValidMove(player)) {
+						List<Move> moves = board.getSuccessorMoves(player);
+						Move move = moves.get(random.nextInt(moves.size()));
+						board.makeMove(move);
+						evaluator.place(geometry.cellAt(move.getRow(), move.getCol()), player);
+						played.add(move);
+						assertMatches(board, evaluator);
+					}
+					player = player == 'X' ? 'O' : 'X';
+				}
+
+				// take every piece back
+				for(int i = played.size() - 1; i >= 0; i--) {
+					Move move = played.get(i);
+					board.unmakeMove(move);
+					evaluator.remove(geometry.cellAt(move.getRow(), move.getCol()), move.getPlayer());
+					assertMatches(board, evaluator);
+				}
+			}
+		}
+	}
+
+	private static void assertMatches(Board board, IncrementalEvaluator evaluator)
+	{
+		IncrementalEvaluator fresh = new IncrementalEvaluator(board);
+		for(char player : new char[] { 'X', 'O' }) {
+			for(int n = 1; n <= 2; n++) {
+				for(int m = 2; m <= 3; m++) {
+					assertEquals(fresh.count(player, n, m), evaluator.count(player, n, m));
+				}
+			}
+			assertEquals(Evaluator.SEQUENCES.evaluate(board, player), evaluator.evaluate(player));
+		}
+	}
+}
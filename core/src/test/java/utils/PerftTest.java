@@ -0,0 +1,97 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import game.Board;
+import game.GameState;
+import game.Geometry;
+import game.Move;
+import game.RandomGames;
+
+/**
+ * Checks perft against the recorded counts from the start, and against a plain recursion over
+ * getSuccessorMoves on positions where a player must pass.
+ */
+class PerftTest {
+	// O's only piece is boxed in: after any X move, O passes
+	private static final String O_PASSES = "OX4/XX4/6/6/6 X";
+
+	@Test
+	void matchesStartCounts()
+	{
+		GameState start = Perft.startPosition();
+		for(int depth = 0; depth <= 6; depth++) {
+			Board board = new Board(start.getBoard());
+			assertEquals(Perft.startCount(depth), Perft.perft(board, start.getCurrentPlayer(), depth), "perft(" + depth + ")");
+			if(depth > 0) assertEquals(Perft.startCount(depth), sum(Perft.divide(start, depth, 1)), "divide(" + depth + ")");
+		}
+	}
+
+	@Test
+	void passDoesNotEndTheLine()
+	{
+		GameState state = GameState.fromFen(O_PASSES);
+		Board board = state.getBoard();
+
+		// X moves, O passes, X moves again
+		long expected = 0;
+		for(Move move : board.getSuccessorMoves('X')) {
+			Board next = new Board(board);
+			next.placePiece(move.getRow(), move.getCol(), 'X');
+			expected += next.isTerminal() ? 1 : next.getSuccessorMoves('X').size();
+		}
+		assertEquals(expected, Perft.perft(new Board(board), 'X', 2));
+
+		for(int depth = 1; depth <= 4; depth++) {
+			assertEquals(reference(board, 'X', depth), Perft.perft(new Board(board), 'X', depth));
+			assertEquals(reference(board, 'X', depth), sum(Perft.divide(state, depth, 2)));
+		}
+	}
+
+	@Test
+	void matchesReferenceLateInRandomGames()
+	{
+		Random random = new Random(51);
+		Geometry[] geometries = { Geometry.STANDARD, Geometry.of(4, 4, 3), Geometry.of(8, 8, 5) };
+		for(Geometry geometry : geometries) {
+			for(int game = 0; game < 100; game++) {
+				for(GameState state : RandomGames.play(geometry, random)) {
+					// late positions keep the reference recursion small
+					if(state.getBoard().getPieceCount() < geometry.getCells() * 2 / 3) continue;
+					Board board = state.getBoard();
+					assertEquals(reference(board, state.getCurrentPlayer(), 3), Perft.perft(new Board(board), state.getCurrentPlayer(), 3), state.toFen());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Perft written for clarity rather than speed: won or drawn positions are leaves, and a
+	 * player with no move passes without using up depth.
+	 */
+	private static long reference(Board board, char player, int depth)
+	{
+		if(depth == 0 || board.isTerminal()) return 1;
+		char other = player == 'X' ? 'O' : 'X';
+		if(board.getSuccessorMoves(player).isEmpty()) return reference(board, other, depth);
+
+		long leaves = 0;
+		for(Move move : board.getSuccessorMoves(player)) {
+			Board next = new Board(board);
+			next.placePiece(move.getRow(), move.getCol(), player);
+			leaves += reference(next, other, depth - 1);
+		}
+		return leaves;
+	}
+
+	private static long sum(long[] counts)
+	{
+		long total = 0;
+		for(long c : counts) total += c;
+		return total;
+	}
+}
@@ -0,0 +1,52 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import game.Board;
+import game.GameState;
+import game.Geometry;
+import game.RandomGames;
+
+/**
+ * Checks the single-pass SequenceHistogram against the sequence scan it replaced,
+ * Heuristics.getAllSequences with countSidesOpen, on every position of random games on several
+ * geometries.
+ */
+class SequenceHistogramTest {
+	private static final Geometry[] GEOMETRIES = {
+		Geometry.STANDARD, Geometry.of(4, 4, 3), Geometry.of(8, 8, 5), Geometry.of(8, 16, 4)
+	};
+
+	private static final int GAMES = 400;
+
+	@Test
+	void matchesSequenceScan()
+	{
+		Random random = new Random(31);
+		SequenceHistogram histogram = new SequenceHistogram();
+		for(Geometry geometry : GEOMETRIES) {
+			for(int game = 0; game < GAMES; game++) {
+				for(GameState state : RandomGames.play(geometry, random)) {
+					Board board = state.getBoard();
+					histogram.scan(board);
+					for(char player : new char[] { 'X', 'O' }) {
+						// counts[n][m] of the player's sequences with n sides open and length m
+						int[][] counts = new int[3][geometry.getMaxLineLength() + 1];
+						for(PieceSequence sequence : Heuristics.getAllSequences(board, player)) {
+							counts[Heuristics.countSidesOpen(board, sequence)][sequence.length]++;
+						}
+						for(int n = 0; n <= 2; n++) {
+							for(int m = 0; m <= geometry.getMaxLineLength(); m++) {
+								assertEquals(counts[n][m], histogram.count(player, n, m), player + " " + n + " " + m);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+}
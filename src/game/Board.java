@@ -1,38 +1,86 @@
 package game;
 
 import java.util.ArrayList;
-import utils.Constants;
-import utils.Heuristics;
 
 /**
  * Represents the game board and manages board-related operations.
+ *
+ * The board is stored as two bitboards, one per player. Bit (row * cols + col)
+ * is set when that player owns the gridspace. Each bitboard is two 64-bit words,
+ * low and high, so boards of up to Geometry.MAX_CELLS cells fit; on boards of up to
+ * 64 cells the high words stay empty. Neighbors, lines and hash keys come from
+ * tables the board's Geometry generates once.
  */
 public class Board {
-	// class member
-	private char[][] board; // 5x6 grid
+	// the most cells pack() fits: both players' masks and GameState's side-to-move bit take 2 * cells + 1 bits
+	public static final int MAX_PACKED_CELLS = 31;
+
+	// class members
+	private final Geometry geometry; // board shape and its lookup tables
+	private long xLow; // cells 0-63 owned by X
+	private long xHigh; // cells 64-127 owned by X
+	private long oLow; // cells 0-63 owned by O
+	private long oHigh; // cells 64-127 owned by O
+	private long xFrontierLow; // empty cells adjacent to an X piece, by word
+	private long xFrontierHigh;
+	private long oFrontierLow; // empty cells adjacent to an O piece, by word
+	private long oFrontierHigh;
+	private int lastCell; // cell of the most recently placed piece, -1 if none
+	private char status; // cached result of getWinner()
+	private long hash; // Zobrist hash of the pieces on the board
+	private int[] undo; // per makeMove: (previous lastCell + 1) | (previous status << 8)
+	private long[] undoFrontier; // per makeMove: the mover's frontier before the move, low then high word
+	private int undoSize; // moves that unmakeMove can still reverse
 
 	/**
-	 * Constructor: Initializes the board.
+	 * Constructor: Initializes the board, with the standard geometry.
 	 */
 	public Board() {
-		board = new char[Constants.ROWS][Constants.COLS];
-		for (int r = 0; r < Constants.ROWS; r++) {
-			for (int c = 0; c < Constants.COLS; c++) {
-				board[r][c] = '\0';
-			}
-		}
+		this(Geometry.STANDARD);
+	}
+
+	/**
+	 * Constructor: Initializes an empty board of the given shape.
+	 *
+	 * @param geometry - rows, columns and win length
+	 */
+	public Board(Geometry geometry) {
+		this.geometry = geometry;
+		lastCell = -1;
+		status = '\0';
 	}
 
 	/*
 	 * Constructor: Creates a deep copy of the board.
+	 * The copy starts with no moves to unmake.
 	 */
 	public Board(Board bd) {
-		this.board = bd.getBoardState();
+		this.geometry = bd.geometry;
+		this.xLow = bd.xLow;
+		this.xHigh = bd.xHigh;
+		this.oLow = bd.oLow;
+		this.oHigh = bd.oHigh;
+		this.xFrontierLow = bd.xFrontierLow;
+		this.xFrontierHigh = bd.xFrontierHigh;
+		this.oFrontierLow = bd.oFrontierLow;
+		this.oFrontierHigh = bd.oFrontierHigh;
+		this.lastCell = bd.lastCell;
+		this.status = bd.status;
+		this.hash = bd.hash;
+	}
+
+	/**
+	 * Returns the board's shape.
+	 *
+	 * @return
+	 */
+	public Geometry getGeometry() {
+		return geometry;
 	}
 
 	/**
 	 * Places a piece if the move is valid.
-	 * 
+	 *
 	 * @param row    - gridspace row
 	 * @param col    - gridspace column
 	 * @param player - the player making the move
@@ -44,13 +92,96 @@ public class Board {
 			return false;
 
 		// place piece
-		board[row][col] = player;
+		place(geometry.cellAt(row, col), player);
 		return true;
 	}
 
+	/**
+	 * Makes a move without checking that it is valid, so it can be reversed by unmakeMove.
+	 * Meant for searches that walk the tree on a single board.
+	 *
+	 * @param move - a valid move
+	 */
+	public void makeMove(Move move) {
+		makeMove(geometry.cellAt(move.getRow(), move.getCol()), move.getPlayer());
+	}
+
+	/**
+	 * Makes a move without checking that it is valid, so it can be reversed by unmakeMove.
+	 *
+	 * @param cell   - gridspace (row * cols + col), must be a valid move
+	 * @param player - the player making the move
+	 */
+	public void makeMove(int cell, char player) {
+		if (undo == null) {
+			undo = new int[geometry.getCells()];
+			undoFrontier = new long[2 * geometry.getCells()];
+		}
+		undoFrontier[2 * undoSize] = player == 'X' ? xFrontierLow : oFrontierLow;
+		undoFrontier[2 * undoSize + 1] = player == 'X' ? xFrontierHigh : oFrontierHigh;
+		undo[undoSize++] = (lastCell + 1) | (status << 8);
+		place(cell, player);
+	}
+
+	/**
+	 * Reverses the most recent makeMove.
+	 *
+	 * @param move - the move being taken back
+	 */
+	public void unmakeMove(Move move) {
+		unmakeMove(geometry.cellAt(move.getRow(), move.getCol()));
+	}
+
+	/**
+	 * Reverses the most recent makeMove.
+	 *
+	 * @param cell - gridspace (row * cols + col) of the move being taken back
+	 */
+	public void unmakeMove(int cell) {
+		long bit = 1L << cell;
+		boolean low = cell < 64;
+		long[] neighbors = geometry.neighbors;
+		int previous = undo[--undoSize];
+
+		// the mover's frontier is restored, the opponent's regains the cell if it still borders them
+		if (((low ? xLow : xHigh) & bit) != 0) {
+			if (low)
+				xLow &= ~bit;
+			else
+				xHigh &= ~bit;
+			hash ^= geometry.zobrist[0][cell];
+			xFrontierLow = undoFrontier[2 * undoSize];
+			xFrontierHigh = undoFrontier[2 * undoSize + 1];
+			if (((neighbors[2 * cell] & oLow) | (neighbors[2 * cell + 1] & oHigh)) != 0) {
+				if (low)
+					oFrontierLow |= bit;
+				else
+					oFrontierHigh |= bit;
+			}
+		} else {
+			if (low)
+				oLow &= ~bit;
+			else
+				oHigh &= ~bit;
+			hash ^= geometry.zobrist[1][cell];
+			oFrontierLow = undoFrontier[2 * undoSize];
+			oFrontierHigh = undoFrontier[2 * undoSize + 1];
+			if (((neighbors[2 * cell] & xLow) | (neighbors[2 * cell + 1] & xHigh)) != 0) {
+				if (low)
+					xFrontierLow |= bit;
+				else
+					xFrontierHigh |= bit;
+			}
+		}
+
+		// restore what the move overwrote
+		lastCell = (previous & 0xFF) - 1;
+		status = (char) (previous >>> 8);
+	}
+
 	/**
 	 * Checks if the move is valid.
-	 * 
+	 *
 	 * @param row    - gridspace row
 	 * @param col    - gridspace column
 	 * @param player - the player making the move
@@ -58,45 +189,60 @@ public class Board {
 	 */
 	public boolean isValidMove(int row, int col, char player) {
 		// check for valid position
-		if (!Board.isInBounds(row, col))
-			return false;
-
-		// check if board space empty
-		if (board[row][col] != '\0')
+		if (!isInBounds(row, col))
 			return false;
 
 		// check for valid player char
 		if (player != 'X' && player != 'O')
 			return false;
 
-		// check if whole board is empty of player chars (players first move)
-		boolean isEmpty = true;
-		for (int r = 0; r < Constants.ROWS; r++) {
-			for (int c = 0; c < Constants.COLS; c++) {
-				if (board[r][c] == player)
-					isEmpty = false;
-			}
-		}
-		if (isEmpty)
-			return true;
-
-		/*** check all 8 neighbors ***/
-		for (int r = -1; r <= 1; r++) {
-			for (int c = -1; c <= 1; c++) {
-				// skip self
-				if (r == 0 && c == 0)
-					continue;
+		// board space must be empty, and either the player's first move or adjacent to one of its pieces
+		int cell = geometry.cellAt(row, col);
+		return (getValidMoveMask(player, cell >>> 6) & (1L << cell)) != 0;
+	}
 
-				if (isInBounds(row + r, col + c) && board[row + r][col + c] == player)
-					return true;
-			}
+	/**
+	 * Returns a mask of every gridspace the player may currently place a piece on,
+	 * for cells 0-63. That is the whole board unless it has more than 64 cells.
+	 *
+	 * @param player - the player making the move
+	 * @return bitboard of valid moves
+	 */
+	public long getValidMoveMask(char player) {
+		return getValidMoveMask(player, 0);
+	}
+
+	/**
+	 * Returns one word of the mask of every gridspace the player may currently place a piece on.
+	 *
+	 * @param player - the player making the move
+	 * @param word   - 0 for cells 0-63, 1 for cells 64-127
+	 * @return bitboard of valid moves, bit (cell - 64 * word) for each cell
+	 */
+	public long getValidMoveMask(char player, int word) {
+		// players first move may go anywhere
+		if (player == 'X' ? (xLow | xHigh) == 0L : (oLow | oHigh) == 0L) {
+			return word == 0 ? ~(xLow | oLow) & geometry.fullMask[0] : ~(xHigh | oHigh) & geometry.fullMask[1];
 		}
-		return false;
+
+		if (player == 'X')
+			return word == 0 ? xFrontierLow : xFrontierHigh;
+		return word == 0 ? oFrontierLow : oFrontierHigh;
+	}
+
+	/**
+	 * Checks whether the player has anywhere to place a piece.
+	 *
+	 * @param player - 'X' or 'O'
+	 * @return false if the player has to pass
+	 */
+	public boolean hasValidMove(char player) {
+		return (getValidMoveMask(player, 0) | getValidMoveMask(player, 1)) != 0L;
 	}
 
 	/**
 	 * Checks if the game is over (win or draw).
-	 * 
+	 *
 	 * @return true if terminal, false otherwise.
 	 */
 	public boolean isTerminal() {
@@ -107,77 +253,268 @@ public class Board {
 
 	/**
 	 * Returns the winner
-	 * 
+	 *
 	 * @return 'X', 'O', 'd' if tie, '\0' if no winner (but game still active)
 	 */
 	public char getWinner() {
-		int XWins[] = { 0, 0, 0 };
-		int OWins[] = { 0, 0, 0 };
+		return status;
+	}
 
-		// check for 4-in-a-rows with 0, 1, and 2 sides open
-		for (int i = 0; i < 3; i++) {
-			XWins[i] = Heuristics.countNSidesOpen_MInARow(this, 'X', i, Constants.WIN_CONDITION);
-			OWins[i] = Heuristics.countNSidesOpen_MInARow(this, 'O', i, Constants.WIN_CONDITION);
-		}
+	/**
+	 * Returns the most recently placed piece.
+	 *
+	 * @return the last move, or null if the board is empty
+	 */
+	public Move getLastMove() {
+		if (lastCell < 0)
+			return null;
+		return new Move(geometry.rowOf(lastCell), geometry.colOf(lastCell), getPiece(lastCell));
+	}
 
-		// check if there are any win conditions for X or O
-		int XWinCount = XWins[0] + XWins[1] + XWins[2];
-		int OWinCount = OWins[0] + OWins[1] + OWins[2];
+	/**
+	 * Returns all possible valid moves.
+	 *
+	 * @param player - this player's turn
+	 * @return ArrayList of possible moves
+	 */
+	public ArrayList<Move> getSuccessorMoves(char player) {
+		long low = getValidMoveMask(player, 0);
+		long high = getValidMoveMask(player, 1);
+		ArrayList<Move> moves = new ArrayList<Move>(Long.bitCount(low) + Long.bitCount(high));
 
-		// this case should never arise, but we will handle just in case
-		if (XWinCount > 0 && OWinCount > 0) {
-			return XWinCount > OWinCount ? 'X' : OWinCount > XWinCount ? 'O' : 'd';
+		// walk the set bits in row-major order
+		for (int word = 0; word < 2; word++) {
+			for (long valid = word == 0 ? low : high; valid != 0L; valid &= valid - 1) {
+				int cell = (word << 6) | Long.numberOfTrailingZeros(valid);
+				moves.add(new Move(geometry.rowOf(cell), geometry.colOf(cell), player));
+			}
 		}
+		return moves;
+	}
 
-		if (XWinCount > 0)
+	/**
+	 * Returns the piece at (row, col).
+	 *
+	 * @param row - row number
+	 * @param col - column number
+	 * @return 'X', 'O', or '\0' if empty
+	 */
+	public char getPiece(int row, int col) {
+		return getPiece(geometry.cellAt(row, col));
+	}
+
+	/**
+	 * Returns the piece on a cell.
+	 *
+	 * @param cell - gridspace (row * cols + col)
+	 * @return 'X', 'O', or '\0' if empty
+	 */
+	public char getPiece(int cell) {
+		long bit = 1L << cell;
+		if (((cell < 64 ? xLow : xHigh) & bit) != 0)
 			return 'X';
-		if (OWinCount > 0)
+		if (((cell < 64 ? oLow : oHigh) & bit) != 0)
 			return 'O';
+		return '\0';
+	}
 
-		// check if game is terminal
-		int countPossibleXMoves = getSuccessorMoves('X').size();
-		int countPossibleOMoves = getSuccessorMoves('O').size();
-		if (countPossibleXMoves + countPossibleOMoves == 0)
-			return 'd';
+	/**
+	 * Returns the bitboard of cells 0-63 owned by the player.
+	 * That is the whole board unless it has more than 64 cells.
+	 *
+	 * @param player - 'X' or 'O'
+	 * @return bitboard of the player's pieces
+	 */
+	public long getPlayerBits(char player) {
+		return player == 'X' ? xLow : oLow;
+	}
 
-		// game is still in progress
-		return '\0';
+	/**
+	 * Returns one word of the bitboard of cells owned by the player.
+	 *
+	 * @param player - 'X' or 'O'
+	 * @param word   - 0 for cells 0-63, 1 for cells 64-127
+	 * @return bitboard of the player's pieces, bit (cell - 64 * word) for each cell
+	 */
+	public long getPlayerBits(char player, int word) {
+		if (player == 'X')
+			return word == 0 ? xLow : xHigh;
+		return word == 0 ? oLow : oHigh;
 	}
 
 	/**
-	 * Returns all possible valid moves.
-	 * 
-	 * @param player - this player's turn
-	 * @return ArrayList of possible moves
+	 * Returns the number of pieces on the board, of both players.
+	 *
+	 * @return
 	 */
-	public ArrayList<Move> getSuccessorMoves(char player) {
-		
-		ArrayList<Move> moves = new ArrayList<Move>();
-		
-		// check all spaces available for player
-		for (int row = 0; row < Constants.ROWS; row++) {
-			for (int col = 0; col < Constants.COLS; col++) {
-				
-				// add this move to successors, if it is valid
-				if (isValidMove(row, col, player)) {
-					moves.add(new Move(row, col, player));
+	public int getPieceCount() {
+		return Long.bitCount(xLow | oLow) + Long.bitCount(xHigh | oHigh);
+	}
+
+	/**
+	 * Counts the pieces, of either player, on the cells around a cell.
+	 *
+	 * @param cell - gridspace (row * cols + col)
+	 * @return 0 to 8
+	 */
+	public int countNeighbors(int cell) {
+		long[] neighbors = geometry.neighbors;
+		return Long.bitCount(neighbors[2 * cell] & (xLow | oLow)) + Long.bitCount(neighbors[2 * cell + 1] & (xHigh | oHigh));
+	}
+
+	/**
+	 * Returns the Zobrist hash of the pieces on the board.
+	 * Boards with the same pieces hash the same regardless of move order.
+	 *
+	 * @return 64-bit position hash
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Packs the pieces into one long: X's cells in bits 0 to cells - 1, O's in bits
+	 * cells to 2 * cells - 1. On the standard board that is two 30-bit masks, leaving
+	 * the top bits free for GameState's side to move.
+	 *
+	 * @return the packed pieces
+	 * @throws IllegalStateException if the board has more than MAX_PACKED_CELLS cells
+	 */
+	public long pack() {
+		int cells = geometry.getCells();
+		if (cells > MAX_PACKED_CELLS)
+			throw new IllegalStateException("Cannot pack a " + geometry + " board into 64 bits.");
+		return xLow | (oLow << cells);
+	}
+
+	/**
+	 * Replaces the pieces with packed ones, as from pack(). Allocates nothing.
+	 * The board forgets its last move and has no moves to unmake.
+	 *
+	 * @param packed - the packed pieces
+	 * @throws IllegalArgumentException if the packed pieces overlap or do not fit the board
+	 */
+	public void unpack(long packed) {
+		int cells = geometry.getCells();
+		if (cells > MAX_PACKED_CELLS)
+			throw new IllegalStateException("Cannot unpack a " + geometry + " board from 64 bits.");
+		long mask = geometry.fullMask[0];
+		long x = packed & mask;
+		long o = (packed >>> cells) & mask;
+		if ((x & o) != 0 || (packed >>> (2 * cells)) != 0)
+			throw new IllegalArgumentException("Not a packed " + geometry + " board: " + Long.toHexString(packed));
+		load(x, 0L, o, 0L);
+	}
+
+	/**
+	 * Appends the rows of the board, top first, separated by '/'. Each row lists its pieces
+	 * ('X' or 'O') with each run of empty cells as its length, as in chess FEN: the standard
+	 * starting position is "6/6/2OX2/6/6".
+	 *
+	 * @param sb - the builder to append to
+	 */
+	public void appendFen(StringBuilder sb) {
+		for (int row = 0; row < geometry.getRows(); row++) {
+			if (row > 0)
+				sb.append('/');
+			int empty = 0;
+			for (int col = 0; col < geometry.getCols(); col++) {
+				char piece = getPiece(row, col);
+				if (piece == '\0') {
+					empty++;
+					continue;
 				}
+				if (empty > 0)
+					sb.append(empty);
+				sb.append(piece);
+				empty = 0;
 			}
+			if (empty > 0)
+				sb.append(empty);
 		}
-		return moves;
+	}
+
+	/**
+	 * Returns the rows of the board as appendFen writes them.
+	 *
+	 * @return
+	 */
+	public String toFen() {
+		StringBuilder sb = new StringBuilder(2 * geometry.getCells());
+		appendFen(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Replaces the pieces with the rows of a FEN, as from appendFen. Allocates nothing.
+	 * A '.' is also read as one empty cell. The board forgets its last move and has no
+	 * moves to unmake.
+	 *
+	 * @param fen   - holds the rows
+	 * @param start - index of the first character of the rows
+	 * @param end   - index after the last character of the rows
+	 * @throws IllegalArgumentException if the rows do not describe a board of this shape
+	 */
+	public void loadFen(CharSequence fen, int start, int end) {
+		long xl = 0L, xh = 0L, ol = 0L, oh = 0L;
+		int rows = geometry.getRows();
+		int cols = geometry.getCols();
+		int row = 0;
+		int col = 0;
+		for (int i = start; i < end; i++) {
+			char c = fen.charAt(i);
+			if (c == '/') {
+				if (col != cols || row == rows - 1)
+					throw new IllegalArgumentException("\"" + fen + "\" is not a " + geometry + " board.");
+				row++;
+				col = 0;
+				continue;
+			}
+
+			if (c >= '0' && c <= '9') {
+				// a run of empty cells, possibly several digits long
+				int run = c - '0';
+				while (i + 1 < end && fen.charAt(i + 1) >= '0' && fen.charAt(i + 1) <= '9' && run <= cols)
+					run = 10 * run + fen.charAt(++i) - '0';
+				col += run;
+			} else if (c == '.') {
+				col++;
+			} else if ((c == 'X' || c == 'O') && col < cols) {
+				int cell = row * cols + col;
+				long bit = 1L << cell;
+				if (c == 'X' && cell < 64)
+					xl |= bit;
+				else if (c == 'X')
+					xh |= bit;
+				else if (cell < 64)
+					ol |= bit;
+				else
+					oh |= bit;
+				col++;
+			} else {
+				throw new IllegalArgumentException("Unexpected '" + c + "' in \"" + fen + "\".");
+			}
+			if (col > cols)
+				throw new IllegalArgumentException("\"" + fen + "\" is not a " + geometry + " board.");
+		}
+		if (row != rows - 1 || col != cols)
+			throw new IllegalArgumentException("\"" + fen + "\" is not a " + geometry + " board.");
+		load(xl, xh, ol, oh);
 	}
 
 	/**
 	 * Returns the current board state (deep copy)
-	 * 
+	 *
 	 * @return
 	 */
 	public char[][] getBoardState() {
-		char[][] boardCopy = new char[Constants.ROWS][Constants.COLS];
-		
-		// clone each row
-		for (int i = 0; i < Constants.ROWS; i++) {
-			boardCopy[i] = this.board[i].clone(); // deep copy
+		char[][] boardCopy = new char[geometry.getRows()][geometry.getCols()];
+
+		// expand both bitboards into the grid
+		for (int row = 0; row < geometry.getRows(); row++) {
+			for (int col = 0; col < geometry.getCols(); col++) {
+				boardCopy[row][col] = getPiece(row, col);
+			}
 		}
 		return boardCopy;
 	}
@@ -187,17 +524,17 @@ public class Board {
 	 */
 	public void printBoard() {
 		final String rowSeperator;
-		rowSeperator = "+---+---+---+---+---+---+";
+		rowSeperator = "+---".repeat(geometry.getCols()) + "+";
 
 		// print each row
 		System.out.println();
-		for (int row = 0; row < Constants.ROWS; row++) {
+		for (int row = 0; row < geometry.getRows(); row++) {
 			System.out.println(rowSeperator);
 
 			// print each grid space
-			for (int col = 0; col < Constants.COLS; col++) {
+			for (int col = 0; col < geometry.getCols(); col++) {
 				// temp char for blank spaces
-				char temp = board[row][col];
+				char temp = getPiece(row, col);
 				if (temp == '\0')
 					temp = ' ';
 
@@ -210,16 +547,203 @@ public class Board {
 
 	/**
 	 * Check if (row, col) is within bounds of the board
-	 * 
+	 *
 	 * @param row - row number
 	 * @param col - column number
 	 * @return true if in bounds, false if not
 	 */
-	public static Boolean isInBounds(int row, int col) {
-		if (row >= Constants.ROWS || row < 0)
-			return false;
-		if (col >= Constants.COLS || col < 0)
-			return false;
-		return true;
+	public boolean isInBounds(int row, int col) {
+		return geometry.isInBounds(row, col);
+	}
+
+	/**
+	 * Replaces the pieces and rebuilds everything derived from them: the frontiers,
+	 * the hash and the game status. Allocates nothing.
+	 *
+	 * @param xl - X's cells 0-63
+	 * @param xh - X's cells 64-127
+	 * @param ol - O's cells 0-63
+	 * @param oh - O's cells 64-127
+	 */
+	private void load(long xl, long xh, long ol, long oh) {
+		xLow = xl;
+		xHigh = xh;
+		oLow = ol;
+		oHigh = oh;
+		xFrontierLow = xFrontierHigh = oFrontierLow = oFrontierHigh = 0L;
+		hash = 0L;
+		lastCell = -1;
+		undoSize = 0;
+
+		long[] neighbors = geometry.neighbors;
+		for (int word = 0; word < 2; word++) {
+			for (long bits = word == 0 ? xl : xh; bits != 0L; bits &= bits - 1) {
+				int cell = (word << 6) | Long.numberOfTrailingZeros(bits);
+				hash ^= geometry.zobrist[0][cell];
+				xFrontierLow |= neighbors[2 * cell];
+				xFrontierHigh |= neighbors[2 * cell + 1];
+			}
+			for (long bits = word == 0 ? ol : oh; bits != 0L; bits &= bits - 1) {
+				int cell = (word << 6) | Long.numberOfTrailingZeros(bits);
+				hash ^= geometry.zobrist[1][cell];
+				oFrontierLow |= neighbors[2 * cell];
+				oFrontierHigh |= neighbors[2 * cell + 1];
+			}
+		}
+
+		// frontiers only hold empty cells
+		long emptyLow = ~(xl | ol);
+		long emptyHigh = ~(xh | oh);
+		xFrontierLow &= emptyLow;
+		xFrontierHigh &= emptyHigh;
+		oFrontierLow &= emptyLow;
+		oFrontierHigh &= emptyHigh;
+
+		// any piece may be part of a line; X's lines are checked first
+		status = '\0';
+		if (geometry.getWords() == 1) {
+			if (hasLine(xl))
+				status = 'X';
+			else if (hasLine(ol))
+				status = 'O';
+		} else {
+			// two-word boards check the lines through every piece
+			for (int word = 0; word < 2 && status == '\0'; word++) {
+				for (long bits = word == 0 ? xl : xh; bits != 0L && status == '\0'; bits &= bits - 1) {
+					if (completesLine((word << 6) | Long.numberOfTrailingZeros(bits), 'X'))
+						status = 'X';
+				}
+			}
+			for (int word = 0; word < 2 && status == '\0'; word++) {
+				for (long bits = word == 0 ? ol : oh; bits != 0L && status == '\0'; bits &= bits - 1) {
+					if (completesLine((word << 6) | Long.numberOfTrailingZeros(bits), 'O'))
+						status = 'O';
+				}
+			}
+		}
+		if (status == '\0' && !hasValidMove('X') && !hasValidMove('O'))
+			status = 'd';
+	}
+
+	/**
+	 * Puts the player's piece on an empty cell and updates the hash, frontiers and game status.
+	 *
+	 * @param cell   - gridspace (row * cols + col)
+	 * @param player - the player placing the piece
+	 */
+	private void place(int cell, char player) {
+		long bit = 1L << cell;
+		boolean low = cell < 64;
+		long[] neighbors = geometry.neighbors;
+		if (player == 'X') {
+			if (low)
+				xLow |= bit;
+			else
+				xHigh |= bit;
+			hash ^= geometry.zobrist[0][cell];
+			xFrontierLow |= neighbors[2 * cell];
+			xFrontierHigh |= neighbors[2 * cell + 1];
+		} else {
+			if (low)
+				oLow |= bit;
+			else
+				oHigh |= bit;
+			hash ^= geometry.zobrist[1][cell];
+			oFrontierLow |= neighbors[2 * cell];
+			oFrontierHigh |= neighbors[2 * cell + 1];
+		}
+
+		// frontiers only hold empty cells
+		long emptyLow = ~(xLow | oLow);
+		long emptyHigh = ~(xHigh | oHigh);
+		xFrontierLow &= emptyLow;
+		xFrontierHigh &= emptyHigh;
+		oFrontierLow &= emptyLow;
+		oFrontierHigh &= emptyHigh;
+		lastCell = cell;
+
+		// only the new piece can have changed the outcome, so just check through it
+		if (status == '\0')
+			status = computeStatus(cell, player);
+	}
+
+	/**
+	 * Determines the game status right after player placed a piece on a cell.
+	 *
+	 * @param cell   - cell of the new piece
+	 * @param player - the player who placed it
+	 * @return 'X', 'O', 'd' if tie, '\0' if the game is still active
+	 */
+	private char computeStatus(int cell, char player) {
+		// check the four lines through the new piece
+		if (completesLine(cell, player))
+			return player;
+
+		// check if game is terminal
+		if (!hasValidMove('X') && !hasValidMove('O'))
+			return 'd';
+
+		// game is still in progress
+		return '\0';
+	}
+
+	/**
+	 * Checks a whole one-word bitboard for a winning line, all cells at once: after k steps,
+	 * run holds the cells that start k + 1 pieces in a row along the direction.
+	 *
+	 * @param bits - one player's pieces, on a board of up to 64 cells
+	 * @return true if the pieces hold a line of at least the win length
+	 */
+	private boolean hasLine(long bits) {
+		int need = geometry.getWinLength() - 1;
+		for (int d = 0; d < Geometry.DIRECTIONS.length; d++) {
+			long canStep = bits & geometry.stepMask[d];
+			int shift = geometry.stepShift[d];
+			long run = bits;
+			for (int k = 0; k < need && run != 0L; k++)
+				run = canStep & (run >>> shift);
+			if (run != 0L)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the player's piece on a cell is part of a winning line.
+	 *
+	 * @param cell   - a cell holding one of the player's pieces
+	 * @param player - 'X' or 'O'
+	 * @return true if the line is at least the win length along some direction
+	 */
+	private boolean completesLine(int cell, char player) {
+		long low = getPlayerBits(player, 0);
+		long high = getPlayerBits(player, 1);
+		int need = geometry.getWinLength() - 1;
+		for (int d = 0; d < Geometry.DIRECTIONS.length; d++) {
+			int length = countInDirection(low, high, cell, geometry.next[d], need);
+			if (length < need)
+				length += countInDirection(low, high, cell, geometry.previous[d], need - length);
+			if (length >= need)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Counts the player's pieces that directly follow a cell along a direction.
+	 * Stops early once a win is already guaranteed.
+	 *
+	 * @param low   - the player's bitboard, cells 0-63
+	 * @param high  - the player's bitboard, cells 64-127
+	 * @param cell  - start cell (not counted)
+	 * @param step  - the next cell along the direction, by cell (Geometry.next or previous)
+	 * @param limit - stop counting at this many
+	 * @return the number of consecutive pieces
+	 */
+	private static int countInDirection(long low, long high, int cell, int[] step, int limit) {
+		int count = 0;
+		for (int c = step[cell]; c >= 0 && count < limit && ((c < 64 ? low : high) & (1L << c)) != 0; c = step[c])
+			count++;
+		return count;
 	}
 }
@@ -20,11 +20,26 @@ public class FourInARow {
 	 */
 	public FourInARow(Player player1, Player player2)
 	{
-		board = new Board();
+		this(player1, player2, Geometry.STANDARD);
+	}
+	
+	/**
+	 * Constructor: Initializes the players on a board of the given shape.
+	 * The start pieces go in the middle row, side by side near the middle column,
+	 * which on the standard board is where the homework puts them.
+	 * @param player1
+	 * @param player2
+	 * @param geometry - rows, columns and win length
+	 */
+	public FourInARow(Player player1, Player player2, Geometry geometry)
+	{
+		board = new Board(geometry);
 		
 		// place starting pieces (as indicated by homework)
-		board.placePiece(2, 3, 'X');
-		board.placePiece(2, 2, 'O');
+		int row = geometry.getRows() / 2;
+		int col = Math.max(1, geometry.getCols() / 2);
+		board.placePiece(row, col, 'X');
+		board.placePiece(row, col - 1, 'O');
 		
 		this.player1 = player1;
 		this.player2 = player2;
@@ -37,27 +52,42 @@ public class FourInARow {
 	 */
 	public void startGame()
 	{	
+		char res = play();
+		
+		// check for tie
+		if(res == 'd') {
+			System.out.println("It was a tie!");
+		}
+		else {
+			System.out.println("Player " + res + " wins!");
+		}
+		board.printBoard();
+	}
+	
+	/**
+	 * Plays the game to the end without printing anything.
+	 * @return the winner, 'X' or 'O', or 'd' for a tie
+	 */
+	public char play()
+	{
 		char res;
 		
+		player1.newGame();
+		player2.newGame();
+		
 		while(true)
 		{
 			makeMove(currentPlayer);
-						
+			
 			// if game no longer in progress, break game loop
 			res = board.getWinner();
 			if(res != '\0') break;
 			
+			// a player with no valid move passes
 			switchPlayer();
+			if(!board.hasValidMove(currentPlayer.getSymbol())) switchPlayer();
 		}
-		
-		// check for tie
-		if(res == 'd') {
-			System.out.println("It was a tie!");
-		}
-		else {
-			System.out.println("Player " + res + " wins!");
-		}
-		board.printBoard();
+		return res;
 	}
 	
 	/**
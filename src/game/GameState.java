@@ -1,5 +1,7 @@
 package game;
 
+import utils.Constants;
+
 /**
  * Encapsulates the state of the game at any given point.
  */
@@ -10,7 +12,7 @@ public class GameState {
 	
 	/**
 	 * Constructor: initializes the state.
-	 * @param board - if null, a new board is created
+	 * @param board - if null, a new board of the standard geometry is created
 	 * @param currentPlayer - the player whose turn it is
 	 */
 	public GameState(Board board, char currentPlayer)
@@ -37,4 +39,170 @@ public class GameState {
 	{
 		return board;
 	}
+	
+	/**
+	 * Returns the shape of the board.
+	 * @return
+	 */
+	public Geometry getGeometry()
+	{
+		return board.getGeometry();
+	}
+	
+	/**
+	 * Packs the state into one long: the pieces as Board.pack() places them, and the side
+	 * to move in the bit above them (set for O). On the standard board that is bit 60.
+	 * @return the packed state
+	 * @throws IllegalStateException if the board has more than Board.MAX_PACKED_CELLS cells
+	 */
+	public long pack()
+	{
+		long sideBit = currentPlayer == 'O' ? 1L << (2 * board.getGeometry().getCells()) : 0L;
+		return board.pack() | sideBit;
+	}
+	
+	/**
+	 * Replaces this state with a packed one, as from pack(), on the same board. Allocates nothing.
+	 * @param packed - the packed state
+	 * @throws IllegalArgumentException if it is not a packed state of this board's shape
+	 */
+	public void unpack(long packed)
+	{
+		long sideBit = 1L << (2 * board.getGeometry().getCells());
+		board.unpack(packed & ~sideBit);
+		currentPlayer = (packed & sideBit) != 0 ? 'O' : 'X';
+	}
+	
+	/**
+	 * Returns the state a packed long holds.
+	 * @param packed - the packed state, as from pack()
+	 * @param geometry - the shape of the board it was packed from
+	 * @return a new state on a new board
+	 */
+	public static GameState fromPacked(long packed, Geometry geometry)
+	{
+		GameState state = new GameState(new Board(geometry), 'X');
+		state.unpack(packed);
+		return state;
+	}
+	
+	/**
+	 * Appends the state as a FEN-like string: the board's rows (see Board.appendFen), a space
+	 * and the side to move, then a space and the win length unless it is the standard one.
+	 * The standard starting position is "6/6/2OX2/6/6 X".
+	 * @param sb - the builder to append to
+	 */
+	public void appendFen(StringBuilder sb)
+	{
+		board.appendFen(sb);
+		sb.append(' ').append(currentPlayer);
+		int winLength = board.getGeometry().getWinLength();
+		if(winLength != Constants.WIN_CONDITION) sb.append(' ').append(winLength);
+	}
+	
+	/**
+	 * Returns the state as appendFen writes it.
+	 * @return
+	 */
+	public String toFen()
+	{
+		StringBuilder sb = new StringBuilder(2 * board.getGeometry().getCells() + 8);
+		appendFen(sb);
+		return sb.toString();
+	}
+	
+	/**
+	 * Replaces this state with the one a FEN describes, on the same board. Allocates nothing.
+	 * @param fen - as from appendFen
+	 * @throws IllegalArgumentException if it is not a FEN of a state of this board's shape
+	 */
+	public void loadFen(CharSequence fen)
+	{
+		int length = fen.length();
+		int rowsEnd = 0;
+		while(rowsEnd < length && fen.charAt(rowsEnd) != ' ') rowsEnd++;
+		
+		// then " X" or " O", and " <win length>" unless it is the standard one
+		char player = rowsEnd + 1 < length ? fen.charAt(rowsEnd + 1) : '?';
+		int winLength = Constants.WIN_CONDITION;
+		int i = rowsEnd + 2;
+		if(i < length) {
+			winLength = fen.charAt(i) == ' ' && i + 1 < length ? 0 : -1;
+			for(i++; i < length && winLength >= 0; i++) {
+				char c = fen.charAt(i);
+				winLength = c >= '0' && c <= '9' && winLength < 1000 ? 10 * winLength + c - '0' : -1;
+			}
+		}
+		if((player != 'X' && player != 'O') || winLength != board.getGeometry().getWinLength()) {
+			throw new IllegalArgumentException("\"" + fen + "\" is not a " + board.getGeometry() + " position.");
+		}
+		
+		board.loadFen(fen, 0, rowsEnd);
+		currentPlayer = player;
+	}
+	
+	/**
+	 * Returns the state a FEN describes, on a board of the shape it describes.
+	 * @param fen - as from appendFen
+	 * @return a new state on a new board
+	 * @throws IllegalArgumentException if it is not a FEN, or describes a board Geometry does not allow
+	 */
+	public static GameState fromFen(CharSequence fen)
+	{
+		// the rows give the board's shape: count the rows, and the cells of the first one
+		int rows = 1;
+		int cols = 0;
+		int run = 0;
+		for(int i = 0; i < fen.length() && fen.charAt(i) != ' '; i++) {
+			char c = fen.charAt(i);
+			if(c != '/' && c != 'X' && c != 'O' && c != '.' && (c < '0' || c > '9')) {
+				throw new IllegalArgumentException("Unexpected '" + c + "' in \"" + fen + "\".");
+			}
+			if(c == '/') rows++;
+			if(rows > 1) continue;
+			
+			if(c >= '0' && c <= '9') {
+				run = 10 * run + c - '0';
+				continue;
+			}
+			cols += run + 1;
+			run = 0;
+		}
+		cols += run;
+		
+		int winLength = Constants.WIN_CONDITION;
+		String[] fields = fen.toString().split(" ");
+		if(fields.length == 3) {
+			try {
+				winLength = Integer.parseInt(fields[2]);
+			}
+			catch(NumberFormatException e) {
+				throw new IllegalArgumentException("\"" + fen + "\" is not a position.");
+			}
+		}
+		
+		GameState state = new GameState(new Board(Geometry.of(rows, Math.max(1, cols), winLength)), 'X');
+		state.loadFen(fen);
+		return state;
+	}
+	
+	/**
+	 * Returns the Zobrist hash of this state, including the side to move.
+	 * @return
+	 */
+	public long getHash()
+	{
+		return hash(board, currentPlayer);
+	}
+	
+	/**
+	 * Returns the Zobrist hash of board with player to move.
+	 * @param board
+	 * @param player - the player whose turn it is
+	 * @return
+	 */
+	public static long hash(Board board, char player)
+	{
+		return player == 'O' ? board.getHash() ^ board.getGeometry().sideToMoveKey : board.getHash();
+	}
 }
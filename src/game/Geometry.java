@@ -0,0 +1,331 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import utils.Constants;
+
+/**
+ * The shape of a board: rows, columns and how many in a row win, with the lookup tables
+ * generated from them once and shared by every board of that shape.
+ *
+ * Cell (row, col) is bit row * cols + col of a board's bitboards. Boards of up to 64 cells
+ * fit in one 64-bit word per player; larger ones, up to MAX_CELLS, keep cells 64 and up in a
+ * second word. Geometries are interned, so two boards have the same shape exactly when their
+ * geometries are ==.
+ */
+public final class Geometry {
+	public static final int MAX_CELLS = 128;
+	public static final int MAX_SIDE = 32;
+
+	// line directions: horizontal, vertical, diagonal (right-down), diagonal (left-down)
+	public static final int[][] DIRECTIONS = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+
+	private static final ConcurrentHashMap<Long, Geometry> INTERNED = new ConcurrentHashMap<Long, Geometry>();
+
+	// the homework's 5x6 board with 4 in a row
+	public static final Geometry STANDARD = of(Constants.ROWS, Constants.COLS, Constants.WIN_CONDITION);
+
+	// class members
+	private final int rows;
+	private final int cols;
+	private final int winLength;
+	private final int cells;
+	private final int words;	// 64-bit words per bitboard, 1 or 2
+
+	// tables Board reads directly
+	final long[] fullMask;	// the board's cells, by word
+	final long[] neighbors;	// for each cell, the mask of its (up to 8) neighbors: word 0 at 2 * cell, word 1 at 2 * cell + 1
+	final long[][] zobrist;	// Zobrist keys, by player (X, O) and cell
+	final long sideToMoveKey;	// Zobrist key for O to move
+	final int[][] next;	// for each direction and cell, the next cell along it, -1 off the board
+	final int[][] previous;	// for each direction and cell, the previous cell along it, -1 off the board
+	final long[] stepMask;	// for each direction, the cells of word 0 whose next cell along it is on the board
+	final int[] stepShift;	// for each direction, next cell - cell
+
+	// the cells of each maximal line of length 2 or more, and for each cell the lines through it
+	private final int[][] lines;
+	private final int[][] cellLines;
+	private final int[][] cellLineBits;
+
+	/**
+	 * Returns the geometry of a rows x cols board won by winLength in a row.
+	 * @param rows
+	 * @param cols
+	 * @param winLength
+	 * @return the shared geometry for those parameters
+	 * @throws IllegalArgumentException if the board has more than MAX_CELLS cells, a side longer
+	 * than MAX_SIDE, or a win length that cannot fit on it
+	 */
+	public static Geometry of(int rows, int cols, int winLength)
+	{
+		if(rows < 1 || cols < 1 || rows > MAX_SIDE || cols > MAX_SIDE || rows * cols > MAX_CELLS) {
+			throw new IllegalArgumentException("A board must have 1 to " + MAX_SIDE + " rows and columns and at most "
+					+ MAX_CELLS + " cells, not " + rows + "x" + cols + ".");
+		}
+		if(winLength < 2 || winLength > Math.max(rows, cols)) {
+			throw new IllegalArgumentException("Cannot win with " + winLength + " in a row on a " + rows + "x" + cols + " board.");
+		}
+		long key = ((long)rows << 32) | ((long)cols << 16) | winLength;
+		return INTERNED.computeIfAbsent(key, k -> new Geometry(rows, cols, winLength));
+	}
+
+	/**
+	 * Constructor: generates the tables.
+	 * @param rows
+	 * @param cols
+	 * @param winLength
+	 */
+	private Geometry(int rows, int cols, int winLength)
+	{
+		this.rows = rows;
+		this.cols = cols;
+		this.winLength = winLength;
+		this.cells = rows * cols;
+		this.words = (cells + 63) / 64;
+
+		fullMask = new long[2];
+		for(int cell = 0; cell < cells; cell++) fullMask[cell >>> 6] |= 1L << cell;
+
+		neighbors = new long[2 * cells];
+		for(int cell = 0; cell < cells; cell++) {
+			for(int dr = -1; dr <= 1; dr++) {
+				for(int dc = -1; dc <= 1; dc++) {
+					int n = cellAt(rowOf(cell) + dr, colOf(cell) + dc);
+					if(n >= 0 && n != cell) neighbors[2 * cell + (n >>> 6)] |= 1L << n;
+				}
+			}
+		}
+
+		// the standard board keeps its original seed, so its hashes stay stable between versions
+		long seed = 0x4f1a4L;
+		if(rows != Constants.ROWS || cols != Constants.COLS || winLength != Constants.WIN_CONDITION) {
+			seed ^= 0x9E3779B97F4A7C15L * ((rows * 64L + cols) * 64 + winLength);
+		}
+		Random random = new Random(seed);
+		zobrist = new long[2][cells];
+		for(int p = 0; p < 2; p++) {
+			for(int cell = 0; cell < cells; cell++) {
+				zobrist[p][cell] = random.nextLong();
+			}
+		}
+		sideToMoveKey = random.nextLong();
+
+		next = new int[DIRECTIONS.length][cells];
+		previous = new int[DIRECTIONS.length][cells];
+		for(int d = 0; d < DIRECTIONS.length; d++) {
+			for(int cell = 0; cell < cells; cell++) {
+				next[d][cell] = cellAt(rowOf(cell) + DIRECTIONS[d][0], colOf(cell) + DIRECTIONS[d][1]);
+				previous[d][cell] = cellAt(rowOf(cell) - DIRECTIONS[d][0], colOf(cell) - DIRECTIONS[d][1]);
+			}
+		}
+
+		stepMask = new long[DIRECTIONS.length];
+		stepShift = new int[DIRECTIONS.length];
+		for(int d = 0; d < DIRECTIONS.length; d++) {
+			stepShift[d] = DIRECTIONS[d][0] * cols + DIRECTIONS[d][1];
+			for(int cell = 0; cell < Math.min(cells, 64); cell++) {
+				if(next[d][cell] >= 0) stepMask[d] |= 1L << cell;
+			}
+		}
+
+		ArrayList<int[]> found = new ArrayList<int[]>();
+		for(int d = 0; d < DIRECTIONS.length; d++) {
+			for(int cell = 0; cell < cells; cell++) {
+				// a maximal line starts where the previous cell is off the board
+				if(previous[d][cell] >= 0) continue;
+
+				int length = 0;
+				for(int c = cell; c >= 0; c = next[d][c]) length++;
+				if(length < 2) continue;
+
+				int[] line = new int[length];
+				int i = 0;
+				for(int c = cell; c >= 0; c = next[d][c]) line[i++] = c;
+				found.add(line);
+			}
+		}
+		lines = found.toArray(new int[found.size()][]);
+
+		cellLines = new int[cells][];
+		cellLineBits = new int[cells][];
+		int[] through = new int[cells];
+		for(int[] line : lines) {
+			for(int c : line) through[c]++;
+		}
+		for(int cell = 0; cell < cells; cell++) {
+			cellLines[cell] = new int[through[cell]];
+			cellLineBits[cell] = new int[through[cell]];
+			through[cell] = 0;
+		}
+		for(int l = 0; l < lines.length; l++) {
+			for(int i = 0; i < lines[l].length; i++) {
+				int c = lines[l][i];
+				cellLines[c][through[c]] = l;
+				cellLineBits[c][through[c]] = i;
+				through[c]++;
+			}
+		}
+	}
+
+	public int getRows()
+	{
+		return rows;
+	}
+
+	public int getCols()
+	{
+		return cols;
+	}
+
+	/**
+	 * Returns how many pieces in a row win.
+	 * @return
+	 */
+	public int getWinLength()
+	{
+		return winLength;
+	}
+
+	public int getCells()
+	{
+		return cells;
+	}
+
+	/**
+	 * Returns the number of 64-bit words in each of a board's bitboards.
+	 * @return 1 for boards of up to 64 cells, otherwise 2
+	 */
+	public int getWords()
+	{
+		return words;
+	}
+
+	/**
+	 * Returns the length of the longest row, column or diagonal.
+	 * @return
+	 */
+	public int getMaxLineLength()
+	{
+		return Math.max(rows, cols);
+	}
+
+	/**
+	 * Check if (row, col) is within bounds of the board
+	 * @param row - row number
+	 * @param col - column number
+	 * @return true if in bounds, false if not
+	 */
+	public boolean isInBounds(int row, int col)
+	{
+		return row >= 0 && row < rows && col >= 0 && col < cols;
+	}
+
+	/**
+	 * Returns the cell at (row, col).
+	 * @param row
+	 * @param col
+	 * @return row * cols + col, or -1 if off the board
+	 */
+	public int cellAt(int row, int col)
+	{
+		return isInBounds(row, col) ? row * cols + col : -1;
+	}
+
+	public int rowOf(int cell)
+	{
+		return cell / cols;
+	}
+
+	public int colOf(int cell)
+	{
+		return cell % cols;
+	}
+
+	/**
+	 * Returns one word of the mask of every cell on the board.
+	 * @param word - 0 for cells 0-63, 1 for cells 64-127
+	 * @return
+	 */
+	public long getFullMask(int word)
+	{
+		return fullMask[word];
+	}
+
+	/**
+	 * Returns one word of the mask of a cell's neighbors (in all 8 directions).
+	 * @param cell
+	 * @param word - 0 for cells 0-63, 1 for cells 64-127
+	 * @return
+	 */
+	public long getNeighborMask(int cell, int word)
+	{
+		return neighbors[2 * cell + word];
+	}
+
+	/**
+	 * Returns, for each cell, the next cell in one of the DIRECTIONS. Shared, do not modify.
+	 * @param direction - index into DIRECTIONS
+	 * @return next cells by cell, -1 where the line leaves the board
+	 */
+	public int[] getNext(int direction)
+	{
+		return next[direction];
+	}
+
+	/**
+	 * Returns, for each cell, the previous cell in one of the DIRECTIONS. Shared, do not modify.
+	 * @param direction - index into DIRECTIONS
+	 * @return previous cells by cell, -1 where the line leaves the board
+	 */
+	public int[] getPrevious(int direction)
+	{
+		return previous[direction];
+	}
+
+	/**
+	 * Returns the cells of every maximal line (a full row, column or diagonal) of length 2 or more,
+	 * in order along the line. Shared, do not modify.
+	 * @return
+	 */
+	public int[][] getLines()
+	{
+		return lines;
+	}
+
+	/**
+	 * Returns the indexes, into getLines(), of the lines through a cell. Shared, do not modify.
+	 * @param cell
+	 * @return
+	 */
+	public int[] getCellLines(int cell)
+	{
+		return cellLines[cell];
+	}
+
+	/**
+	 * Returns the cell's position along each of getCellLines(cell). Shared, do not modify.
+	 * @param cell
+	 * @return
+	 */
+	public int[] getCellLineBits(int cell)
+	{
+		return cellLineBits[cell];
+	}
+
+	/**
+	 * Returns the Zobrist key toggled when O is to move.
+	 * @return
+	 */
+	public long getSideToMoveKey()
+	{
+		return sideToMoveKey;
+	}
+
+	@Override
+	public String toString()
+	{
+		return rows + "x" + cols + ", " + winLength + " in a row";
+	}
+}
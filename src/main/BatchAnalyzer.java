@@ -0,0 +1,214 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import game.Board;
+import game.GameState;
+import players.MinimaxPlayer;
+import players.SearchStats;
+import utils.TranspositionTable;
+
+/**
+ * Analyzes a file of positions offline: searches each one to a fixed depth, in parallel,
+ * and writes the best move, its score and the search's node count, in input order.
+ *
+ * The input is streamed: only a window of a few positions per thread is held at once, so
+ * files of any size take the same memory. Each input line is one position, as GameState.toFen()
+ * writes it:
+ *
+ *   6/2X3/2OX2/6/6 O
+ *   8/8/8/3XO3/8/8/8/8 O 5
+ *
+ * Line N of the output answers line N of the input: "[row,col] score nodes depth" (1-based,
+ * as moves print), "none 0 0 0" for a position with nothing to search, or "ERR reason" for a
+ * line that is not a position. Blank lines and lines starting with '#' are copied through.
+ *
+ * Usage: java main.BatchAnalyzer input output [depth] [threads]
+ */
+public class BatchAnalyzer {
+	// each thread's engines' transposition tables, cleared for every position
+	private static final int TABLE_BITS = 16;
+
+	// positions read ahead per thread
+	private static final int WINDOW_PER_THREAD = 4;
+
+	// seconds between progress reports
+	private static final long PROGRESS_INTERVAL = 10;
+
+	/**
+	 * One position's analysis, as written to the output.
+	 */
+	private static class Analysis {
+		final String line;
+		final long nodes;
+
+		Analysis(String line, long nodes)
+		{
+			this.line = line;
+			this.nodes = nodes;
+		}
+	}
+
+	/**
+	 * Analyzes every position of the input file and writes the results.
+	 * @param input - the positions, one per line
+	 * @param output - the file to write, replaced if it exists
+	 * @param depth - search depth for each position
+	 * @param threads - positions searched at once
+	 * @return the run's totals
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static Summary analyze(Path input, Path output, int depth, int threads) throws IOException
+	{
+		long startTime = System.nanoTime();
+		long nextReport = startTime + PROGRESS_INTERVAL * 1000000000L;
+		Summary summary = new Summary();
+
+		// each worker thread keeps one engine per side, reused for every position it searches
+		ThreadLocal<MinimaxPlayer[]> engines = ThreadLocal.withInitial(() -> {
+			MinimaxPlayer[] pair = { new MinimaxPlayer('X', depth), new MinimaxPlayer('O', depth) };
+			for(MinimaxPlayer engine : pair) engine.setTranspositionTable(new TranspositionTable(TABLE_BITS));
+			return pair;
+		});
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<Analysis>> window = new ArrayDeque<Future<Analysis>>();
+		int windowSize = threads * WINDOW_PER_THREAD;
+		try(BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII);
+				BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.US_ASCII)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				// once the window is full, wait for its oldest position, so results leave in input order
+				if(window.size() == windowSize) write(window.poll(), writer, summary);
+
+				String position = line;
+				window.add(pool.submit(() -> analyze(position, engines.get())));
+
+				if(System.nanoTime() >= nextReport) {
+					summary.elapsedNanos = System.nanoTime() - startTime;
+					System.err.println(summary);
+					nextReport += PROGRESS_INTERVAL * 1000000000L;
+				}
+			}
+			while(!window.isEmpty()) write(window.poll(), writer, summary);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		summary.elapsedNanos = System.nanoTime() - startTime;
+		return summary;
+	}
+
+	/**
+	 * Waits for one position's analysis and writes it.
+	 * @param future
+	 * @param writer
+	 * @param summary - counts the position
+	 * @throws IOException
+	 */
+	private static void write(Future<Analysis> future, BufferedWriter writer, Summary summary) throws IOException
+	{
+		Analysis analysis;
+		try {
+			analysis = future.get();
+		}
+		catch(InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Position analysis failed.", e);
+		}
+		writer.write(analysis.line);
+		writer.newLine();
+		if(analysis.nodes >= 0) {
+			summary.positions++;
+			summary.nodes += analysis.nodes;
+		}
+	}
+
+	/**
+	 * Analyzes one input line.
+	 * @param line
+	 * @param engines - this thread's X and O engines
+	 * @return the output line, with the nodes searched, or -1 nodes for a line that is not a position
+	 */
+	private static Analysis analyze(String line, MinimaxPlayer[] engines)
+	{
+		String trimmed = line.trim();
+		if(trimmed.isEmpty() || trimmed.startsWith("#")) return new Analysis(line, -1);
+
+		GameState state;
+		try {
+			state = GameState.fromFen(trimmed);
+		}
+		catch(IllegalArgumentException e) {
+			return new Analysis("ERR " + e.getMessage(), -1);
+		}
+		Board board = state.getBoard();
+		char player = state.getCurrentPlayer();
+		if(board.isTerminal() || !board.hasValidMove(player)) return new Analysis("none 0 0 0", 0);
+
+		// a fresh table for every position, so each result depends only on its position
+		MinimaxPlayer engine = engines[player == 'X' ? 0 : 1];
+		engine.newGame();
+		SearchStats stats = engine.search(board);
+		return new Analysis(stats.getMove() + " " + stats.getScore() + " " + stats.getNodes() + " " + stats.getDepthReached(), stats.getNodes());
+	}
+
+	/**
+	 * Totals of an analysis run.
+	 */
+	public static class Summary {
+		private long positions;
+		private long nodes;
+		private long elapsedNanos;
+
+		/**
+		 * Returns the number of positions analyzed, not counting comments and bad lines.
+		 * @return
+		 */
+		public long getPositions()
+		{
+			return positions;
+		}
+
+		public long getNodes()
+		{
+			return nodes;
+		}
+
+		public double getPositionsPerSecond()
+		{
+			return positions * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%d positions in %.1fs: %.1f positions/s, %.0f nodes/s",
+					positions, elapsedNanos / 1e9, getPositionsPerSecond(), nodes * 1e9 / elapsedNanos);
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length < 2) {
+			System.err.println("Usage: java main.BatchAnalyzer input output [depth] [threads]");
+			System.exit(1);
+		}
+		Path input = Paths.get(args[0]);
+		Path output = Paths.get(args[1]);
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		System.out.println(analyze(input, output, depth, threads));
+	}
+}
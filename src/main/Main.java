@@ -1,8 +1,13 @@
 package main;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 import game.FourInARow;
 import players.MinimaxPlayer;
-import players.Player;
+import players.SearchListener;
+import players.SearchMonitor;
+import utils.OpeningBook;
 
 public class Main {
 	
@@ -21,10 +26,23 @@ public class Main {
 	 * +---+---+---+---+---+---+ 
 	 */
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 	
-		Player player1 = new MinimaxPlayer('X', 2);	// X uses a 2-ply look-ahead.
-		Player player2 = new MinimaxPlayer('O', 4); // O uses a 4-ply look-ahead.
+		MinimaxPlayer player1 = new MinimaxPlayer('X', 2);	// X uses a 2-ply look-ahead.
+		MinimaxPlayer player2 = new MinimaxPlayer('O', 4); // O uses a 4-ply look-ahead.
+		
+		// print each move, and expose search counters over JMX
+		player1.addSearchListener(SearchListener.CONSOLE);
+		player2.addSearchListener(SearchListener.CONSOLE);
+		SearchMonitor.register(player1, "X");
+		SearchMonitor.register(player2, "O");
+		
+		// the first argument, if any, is an opening book file
+		if(args.length > 0) {
+			OpeningBook book = OpeningBook.open(Paths.get(args[0]));
+			player1.setOpeningBook(book);
+			player2.setOpeningBook(book);
+		}
 		
 		FourInARow game = new FourInARow(player1, player2);
 		game.startGame();  // starts the game loop	
@@ -0,0 +1,137 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import game.Board;
+import game.GameState;
+import game.Geometry;
+import game.Move;
+import players.MinimaxPlayer;
+import utils.OpeningBook;
+import utils.TranspositionTable;
+
+/**
+ * Builds an opening book offline: searches every position within the first N plies of the game
+ * to a fixed depth, in parallel, and writes the chosen moves to a book file. Books are built
+ * for the standard board.
+ *
+ * Usage: java main.OpeningBookBuilder [file] [plies] [depth] [threads]
+ */
+public class OpeningBookBuilder {
+
+	/**
+	 * Collects every position reachable from the start within the given number of plies.
+	 * Won and drawn positions are left out, there is nothing to choose in them. A player with
+	 * no valid move passes: the position is kept with the other player to move, in the same ply.
+	 * @param plies
+	 * @return the positions, keyed by hash so transpositions appear once
+	 */
+	public static LinkedHashMap<Long, GameState> positions(int plies)
+	{
+		LinkedHashMap<Long, GameState> positions = new LinkedHashMap<Long, GameState>();
+		ArrayList<GameState> frontier = new ArrayList<GameState>();
+		frontier.add(new GameState(startBoard(), 'X'));
+
+		for(int ply = 0; ply <= plies; ply++) {
+			ArrayList<GameState> next = new ArrayList<GameState>();
+			for(GameState state : frontier) {
+				Board board = state.getBoard();
+				if(board.isTerminal()) continue;
+
+				// no valid move, pass: the game goes on, so the other player can move
+				char player = state.getCurrentPlayer();
+				if(!board.hasValidMove(player)) {
+					player = player == 'X' ? 'O' : 'X';
+					state = new GameState(board, player);
+				}
+				if(positions.putIfAbsent(state.getHash(), state) != null) continue;
+
+				if(ply == plies) continue;
+				char other = player == 'X' ? 'O' : 'X';
+				for(Move move : board.getSuccessorMoves(player)) {
+					Board nextBoard = new Board(board);
+					nextBoard.placePiece(move.getRow(), move.getCol(), player);
+					next.add(new GameState(nextBoard, other));
+				}
+			}
+			frontier = next;
+		}
+		return positions;
+	}
+
+	/**
+	 * Searches every position and writes the book.
+	 * @param path - the book file to write
+	 * @param plies - plies from the start to cover
+	 * @param depth - search depth for each position
+	 * @param threads - positions searched at once
+	 * @return the number of positions written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static int build(Path path, int plies, int depth, int threads) throws IOException
+	{
+		ArrayList<GameState> states = new ArrayList<GameState>(positions(plies).values());
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<Move>> futures = new ArrayList<Future<Move>>();
+		for(GameState state : states) {
+			futures.add(pool.submit(() -> {
+				MinimaxPlayer player = new MinimaxPlayer(state.getCurrentPlayer(), depth);
+				player.setTranspositionTable(new TranspositionTable(18));
+				return player.makeMove(state.getBoard());
+			}));
+		}
+
+		long[] keys = new long[states.size()];
+		int[] cells = new int[states.size()];
+		try {
+			for(int i = 0; i < states.size(); i++) {
+				Move move = futures.get(i).get();
+				keys[i] = states.get(i).getHash();
+				cells[i] = Geometry.STANDARD.cellAt(move.getRow(), move.getCol());
+			}
+		}
+		catch(InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Opening book search failed.", e);
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		OpeningBook.write(path, Geometry.STANDARD, depth, keys, cells);
+		return states.size();
+	}
+
+	/**
+	 * Returns the board every game starts from.
+	 * @return
+	 */
+	private static Board startBoard()
+	{
+		Board board = new Board();
+		board.placePiece(2, 3, 'X');
+		board.placePiece(2, 2, 'O');
+		return board;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		Path path = Paths.get(args.length > 0 ? args[0] : "opening.book");
+		int plies = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		long startTime = System.nanoTime();
+		int size = build(path, plies, depth, threads);
+		double elapsedTime = (System.nanoTime() - startTime) / 1e9;
+		System.out.println(String.format("Wrote %d positions to %s in %.1fs", size, path, elapsedTime));
+	}
+}
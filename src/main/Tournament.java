@@ -0,0 +1,431 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import game.Board;
+import game.FourInARow;
+import game.Geometry;
+import game.Move;
+import players.MctsPlayer;
+import players.MinimaxPlayer;
+import players.Player;
+import utils.TranspositionTable;
+
+/**
+ * Plays a match of headless engine-vs-engine games on a bounded thread pool.
+ *
+ * Games are played in pairs from the same opening, with engine A moving first in one and
+ * engine B in the other. Each pair's opening is a few random valid moves drawn from the
+ * match seed, so deterministic engines still play different games and the whole match
+ * is reproducible.
+ */
+public class Tournament {
+
+	/**
+	 * Creates a fresh player for each game.
+	 */
+	public interface PlayerFactory {
+		Player create(char symbol);
+	}
+
+	// class members
+	private PlayerFactory engineA;
+	private PlayerFactory engineB;
+	private int games = 100;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int openingMoves = 4;
+	private long seed = 1;
+	private Geometry geometry = Geometry.STANDARD;
+
+	/**
+	 * Constructor: a match between two engines.
+	 * @param engineA
+	 * @param engineB
+	 */
+	public Tournament(PlayerFactory engineA, PlayerFactory engineB)
+	{
+		this.engineA = engineA;
+		this.engineB = engineB;
+	}
+
+	/**
+	 * Sets the number of games, rounded up to an even number so every opening is played both ways.
+	 * @param games
+	 */
+	public void setGames(int games)
+	{
+		this.games = games + (games & 1);
+	}
+
+	/**
+	 * Sets how many games are played at once.
+	 * @param threads
+	 */
+	public void setThreads(int threads)
+	{
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Sets how many random moves open each game, after the two starting pieces.
+	 * @param openingMoves - 0 plays every pair from the starting position
+	 */
+	public void setOpeningMoves(int openingMoves)
+	{
+		this.openingMoves = openingMoves;
+	}
+
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the board every game is played on.
+	 * @param geometry - rows, columns and win length
+	 */
+	public void setGeometry(Geometry geometry)
+	{
+		this.geometry = geometry;
+	}
+
+	/**
+	 * Plays every game of the match.
+	 * @return the match result, from engine A's point of view
+	 */
+	public Result run()
+	{
+		long startTime = System.nanoTime();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<Game>> futures = new ArrayList<Future<Game>>();
+		for(int i = 0; i < games; i++) {
+			int game = i;
+			futures.add(pool.submit(() -> play(game)));
+		}
+
+		Result result = new Result();
+		try {
+			for(Future<Game> future : futures) result.add(future.get());
+		}
+		catch(InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Tournament game failed.", e);
+		}
+		finally {
+			pool.shutdown();
+		}
+		result.elapsedNanos = System.nanoTime() - startTime;
+		return result;
+	}
+
+	/**
+	 * Plays one game. Engine A is X (and moves first) in even games, O in odd ones.
+	 * @param game - index of the game in the match
+	 * @return
+	 */
+	private Game play(int game)
+	{
+		boolean aIsX = (game & 1) == 0;
+		long openingSeed = seed * 1000003L + game / 2;
+
+		MatchPlayer a = new MatchPlayer(engineA.create(aIsX ? 'X' : 'O'), openingSeed);
+		MatchPlayer b = new MatchPlayer(engineB.create(aIsX ? 'O' : 'X'), openingSeed);
+		char winner = aIsX ? new FourInARow(a, b, geometry).play() : new FourInARow(b, a, geometry).play();
+
+		Game result = new Game();
+		result.score = winner == 'd' ? 0.5 : winner == a.getSymbol() ? 1.0 : 0.0;
+		result.aNanos = a.nanos;
+		result.aMoves = a.moves;
+		result.bNanos = b.nanos;
+		result.bMoves = b.moves;
+		if(a.engine instanceof MctsPlayer) result.aPlayouts = ((MctsPlayer)a.engine).getTotalPlayouts();
+		if(b.engine instanceof MctsPlayer) result.bPlayouts = ((MctsPlayer)b.engine).getTotalPlayouts();
+		return result;
+	}
+
+	/**
+	 * Wraps an engine: plays the pair's random opening moves, then times each engine move.
+	 */
+	private class MatchPlayer extends Player {
+		private Player engine;
+		private long openingSeed;
+		private long nanos;
+		private int moves;
+
+		MatchPlayer(Player engine, long openingSeed)
+		{
+			super(engine.getSymbol());
+			this.engine = engine;
+			this.openingSeed = openingSeed;
+		}
+		
+		@Override
+		public void newGame()
+		{
+			engine.newGame();
+		}
+
+		public Move makeMove(Board board)
+		{
+			// the opening depends only on the seed and the board, so both games of a pair share it
+			int ply = board.getPieceCount() - 2;
+			if(ply < openingMoves) {
+				ArrayList<Move> candidates = new ArrayList<Move>();
+				for(Move move : board.getSuccessorMoves(playerSymbol)) {
+					Board next = new Board(board);
+					next.placePiece(move.getRow(), move.getCol(), playerSymbol);
+					if(!next.isTerminal()) candidates.add(move);
+				}
+				if(!candidates.isEmpty()) {
+					Random random = new Random(openingSeed * 31 + ply);
+					return candidates.get(random.nextInt(candidates.size()));
+				}
+			}
+
+			long startTime = System.nanoTime();
+			Move move = engine.makeMove(board);
+			nanos += System.nanoTime() - startTime;
+			moves++;
+			return move;
+		}
+	}
+
+	/**
+	 * Outcome of one game.
+	 */
+	private static class Game {
+		double score;	// 1 if engine A won, 0.5 for a tie, 0 if it lost.
+		long aNanos;
+		int aMoves;
+		long bNanos;
+		int bMoves;
+		long aPlayouts;	// Playouts of engine A, if it is an MctsPlayer.
+		long bPlayouts;
+	}
+
+	/**
+	 * Totals of a match, from engine A's point of view.
+	 */
+	public static class Result {
+		private int wins;
+		private int draws;
+		private int losses;
+		private double scoreSquares;
+		private long aNanos;
+		private long aMoves;
+		private long bNanos;
+		private long bMoves;
+		private long aPlayouts;
+		private long bPlayouts;
+		private long elapsedNanos;
+
+		private void add(Game game)
+		{
+			if(game.score == 1.0) wins++;
+			else if(game.score == 0.5) draws++;
+			else losses++;
+			scoreSquares += game.score * game.score;
+			aNanos += game.aNanos;
+			aMoves += game.aMoves;
+			bNanos += game.bNanos;
+			bMoves += game.bMoves;
+			aPlayouts += game.aPlayouts;
+			bPlayouts += game.bPlayouts;
+		}
+
+		public int getWins()
+		{
+			return wins;
+		}
+
+		public int getDraws()
+		{
+			return draws;
+		}
+
+		public int getLosses()
+		{
+			return losses;
+		}
+
+		public int getGames()
+		{
+			return wins + draws + losses;
+		}
+
+		/**
+		 * Returns engine A's mean score per game, 1 for a win and 0.5 for a tie.
+		 * @return
+		 */
+		public double getScore()
+		{
+			return (wins + 0.5 * draws) / getGames();
+		}
+
+		/**
+		 * Returns the estimated Elo difference, engine A minus engine B.
+		 * @return the difference, infinite if one engine won every game
+		 */
+		public double getElo()
+		{
+			return elo(getScore());
+		}
+
+		/**
+		 * Returns a bound of the 95% confidence interval of the Elo difference.
+		 * @param upper - true for the upper bound, false for the lower
+		 * @return
+		 */
+		public double getEloBound(boolean upper)
+		{
+			// normal approximation of the mean score
+			int n = getGames();
+			double mean = getScore();
+			double variance = scoreSquares / n - mean * mean;
+			double margin = 1.96 * Math.sqrt(variance / n);
+			return elo(upper ? mean + margin : mean - margin);
+		}
+
+		/**
+		 * Returns engine A's average time per move, in milliseconds.
+		 * @return
+		 */
+		public double getMoveMillisA()
+		{
+			return aMoves > 0 ? aNanos / 1e6 / aMoves : 0;
+		}
+
+		/**
+		 * Returns engine B's average time per move, in milliseconds.
+		 * @return
+		 */
+		public double getMoveMillisB()
+		{
+			return bMoves > 0 ? bNanos / 1e6 / bMoves : 0;
+		}
+
+		/**
+		 * Returns engine A's playouts per second of its own move time, 0 unless it is an MctsPlayer.
+		 * @return
+		 */
+		public double getPlayoutsPerSecondA()
+		{
+			return aNanos > 0 ? aPlayouts * 1e9 / aNanos : 0;
+		}
+
+		/**
+		 * Returns engine B's playouts per second of its own move time, 0 unless it is an MctsPlayer.
+		 * @return
+		 */
+		public double getPlayoutsPerSecondB()
+		{
+			return bNanos > 0 ? bPlayouts * 1e9 / bNanos : 0;
+		}
+
+		public double getGamesPerSecond()
+		{
+			return getGames() * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%d games: +%d =%d -%d%n", getGames(), wins, draws, losses)
+					+ String.format("Elo A - B: %+.1f (95%% CI %+.1f to %+.1f)%n", getElo(), getEloBound(false), getEloBound(true))
+					+ String.format("Average move: A %.3fms, B %.3fms%n", getMoveMillisA(), getMoveMillisB())
+					+ (aPlayouts + bPlayouts > 0 ? String.format("Playouts/s: A %.0f, B %.0f%n", getPlayoutsPerSecondA(), getPlayoutsPerSecondB()) : "")
+					+ String.format("%.2fs, %.1f games/s", elapsedNanos / 1e9, getGamesPerSecond());
+		}
+
+		private static double elo(double score)
+		{
+			if(score <= 0) return Double.NEGATIVE_INFINITY;
+			if(score >= 1) return Double.POSITIVE_INFINITY;
+			return -400 * Math.log10(1 / score - 1);
+		}
+	}
+
+	/**
+	 * Returns a factory of alpha-beta players searching to the given depth.
+	 * Each player gets a small transposition table, so many games fit in memory at once.
+	 * @param depth
+	 * @return
+	 */
+	public static PlayerFactory minimax(int depth)
+	{
+		return symbol -> {
+			MinimaxPlayer player = new MinimaxPlayer(symbol, depth);
+			player.setTranspositionTable(new TranspositionTable(16));
+			return player;
+		};
+	}
+
+	/**
+	 * Returns a factory of Monte Carlo tree search players with a time budget per move.
+	 * Each player gets a small node arena, so many games fit in memory at once.
+	 * @param millis - time budget per move
+	 * @param threads - threads searching each player's tree
+	 * @return
+	 */
+	public static PlayerFactory mcts(long millis, int threads)
+	{
+		return symbol -> {
+			MctsPlayer player = new MctsPlayer(symbol, 1 << 18);
+			player.setTimeBudget(millis);
+			player.setPlayoutBudget(0);
+			player.setThreads(threads);
+			return player;
+		};
+	}
+
+	/**
+	 * Returns the factory an engine argument names: a number is a minimax depth,
+	 * "mcts:millis[:threads]" a Monte Carlo player with that time budget.
+	 * @param engine
+	 * @return
+	 */
+	private static PlayerFactory parseEngine(String engine)
+	{
+		if(engine.startsWith("mcts:")) {
+			String[] parts = engine.split(":");
+			return mcts(Long.parseLong(parts[1]), parts.length > 2 ? Integer.parseInt(parts[2]) : 1);
+		}
+		return minimax(Integer.parseInt(engine));
+	}
+
+	/**
+	 * Returns the name of an engine argument, as the match header prints it.
+	 * @param engine
+	 * @return
+	 */
+	private static String describeEngine(String engine)
+	{
+		if(!engine.startsWith("mcts:")) return "depth " + engine;
+		String[] parts = engine.split(":");
+		return "MCTS " + parts[1] + "ms" + (parts.length > 2 ? " x" + parts[2] + " threads" : "");
+	}
+
+	/**
+	 * Plays a match between two engines, each a MinimaxPlayer depth or "mcts:millis[:threads]".
+	 * Usage: java main.Tournament [games] [engineA] [engineB] [threads]
+	 * @param args
+	 */
+	public static void main(String[] args)
+	{
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		String engineA = args.length > 1 ? args[1] : "4";
+		String engineB = args.length > 2 ? args[2] : "2";
+
+		Tournament tournament = new Tournament(parseEngine(engineA), parseEngine(engineB));
+		tournament.setGames(games);
+		if(args.length > 3) tournament.setThreads(Integer.parseInt(args[3]));
+
+		System.out.println(describeEngine(engineA) + " (A) vs " + describeEngine(engineB) + " (B)");
+		System.out.println(tournament.run());
+	}
+}
@@ -0,0 +1,141 @@
+package players;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import game.Board;
+import game.Move;
+import utils.TranspositionTable;
+
+/**
+ * A MinimaxPlayer that searches with several threads using Lazy SMP.
+ * 
+ * Every thread runs its own iterative deepening over the same position, and all of them share
+ * the lock-free transposition table. Helper threads start at staggered depths and from different
+ * root moves, so they fill the table with results the main thread then picks up. The main thread's
+ * move is played; helpers are stopped as soon as it finishes.
+ */
+public class LazySmpPlayer extends MinimaxPlayer {
+	
+	private int threads;	// Total search threads, including the calling thread.
+	private ExecutorService helpers;	// Runs the threads - 1 helper searches.
+	
+	// statistics from the last search
+	private long[] threadNodes;
+	private long sharedHits;
+	private long foreignOverwrites;
+	
+	/**
+	 * Constructor: initializes the player, its search depth and thread count.
+	 * @param symbol
+	 * @param maxDepth
+	 * @param threads - search threads (1-64), including the calling thread
+	 */
+	public LazySmpPlayer(char symbol, int maxDepth, int threads)
+	{
+		super(symbol, maxDepth);
+		if(threads < 1 || threads > 64) {
+			throw new IllegalArgumentException("LazySmpPlayer needs between 1 and 64 threads.");
+		}
+		this.threads = threads;
+		this.threadNodes = new long[threads];
+		
+		if(threads > 1) {
+			// idle helpers exit, so players that are dropped leave no threads behind
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads - 1, threads - 1, 1, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), r -> {
+						Thread t = new Thread(r, "lazy-smp-helper");
+						t.setDaemon(true);
+						return t;
+					});
+			pool.allowCoreThreadTimeOut(true);
+			helpers = pool;
+		}
+	}
+	
+	@Override
+	protected Move alphaBetaDecision(Board board, SearchContext ctx)
+	{
+		TranspositionTable table = ctx.table;
+		if(table == null) return super.alphaBetaDecision(board, ctx);
+		table.newSearch();
+		
+		long start = System.nanoTime();
+		long deadline = timeBudgetMillis > 0 ? start + timeBudgetMillis * 1000000L : Long.MAX_VALUE;
+		AtomicBoolean stop = new AtomicBoolean(false);
+		
+		// the caller's context is the main thread's
+		SearchContext[] contexts = new SearchContext[threads];
+		contexts[0] = ctx;
+		ctx.searchDepth = 1;
+		for(int i = 1; i < threads; i++) {
+			contexts[i] = new SearchContext(1, table);
+			contexts[i].threadId = i;
+		}
+		
+		// odd helpers start one ply deeper than even ones
+		ArrayList<Future<Move>> futures = new ArrayList<Future<Move>>();
+		for(int i = 1; i < threads; i++) {
+			SearchContext helper = contexts[i];
+			helper.deadline = deadline;
+			helper.stop = stop;
+			int startDepth = 1 + (i & 1);
+			futures.add(helpers.submit(() -> deepen(board, startDepth, null, helper)));
+		}
+		
+		// the main thread always completes depth 1, so there is a move to play
+		SearchContext main = contexts[0];
+		Move maxMove = alphaBetaRoot(board, -1, main);
+		main.deadline = deadline;
+		maxMove = deepen(board, 2, maxMove, main);
+		
+		// stop the helpers and wait for them to unwind
+		stop.set(true);
+		try {
+			for(Future<Move> future : futures) future.get();
+		}
+		catch(InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Lazy SMP helper search failed.", e);
+		}
+		
+		// collect statistics, then fold the helpers' counters into the main context
+		for(int i = 0; i < threads; i++) threadNodes[i] = contexts[i].nodes;
+		for(int i = 1; i < threads; i++) ctx.add(contexts[i]);
+		sharedHits = ctx.sharedHits;
+		foreignOverwrites = ctx.foreignOverwrites;
+		return maxMove;
+	}
+	
+	/**
+	 * Returns the nodes each thread generated during the last search, main thread first.
+	 * @return
+	 */
+	public long[] getThreadNodeCounts()
+	{
+		return threadNodes.clone();
+	}
+	
+	/**
+	 * Returns how many table hits in the last search found an entry stored by a different thread.
+	 * @return
+	 */
+	public long getSharedHits()
+	{
+		return sharedHits;
+	}
+	
+	/**
+	 * Returns how many stores in the last search replaced a different thread's entry for another position.
+	 * @return
+	 */
+	public long getForeignOverwrites()
+	{
+		return foreignOverwrites;
+	}
+}
@@ -0,0 +1,472 @@
+package players;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import game.Board;
+import game.Geometry;
+import game.Move;
+
+/**
+ * Implements a player that uses Monte Carlo tree search (UCT) to choose moves.
+ *
+ * Each playout descends the tree by the UCT formula, expands the leaf it reaches, plays random
+ * moves to the end of the game and backs the result up the path. Every thread walks its own
+ * copy of the board with make/unmake, so playouts allocate nothing.
+ *
+ * The tree lives in a node arena allocated once: parallel arrays indexed by node, with each
+ * node's children in one contiguous block. Threads share the tree (tree parallelization). A
+ * thread descending through a node counts VIRTUAL_LOSS visits there before its result is known,
+ * so the other threads see the node as worse and spread over other lines.
+ */
+public class MctsPlayer extends Player {
+	// visits counted for a playout still in flight, won nothing until it backs up
+	private static final int VIRTUAL_LOSS = 3;
+
+	// a leaf is expanded once this many playouts through it have backed up, so single playouts do not fill the arena
+	private static final int EXPANSION_THRESHOLD = 2;
+
+	// firstChild values of nodes without children
+	private static final int LEAF = -1;
+	private static final int EXPANDING = -2;	// another thread is expanding it
+	private static final int FULL = -3;	// the arena had no room for its children
+
+	// class members
+	private final int capacity;	// Nodes the arena holds.
+	private final AtomicLongArray stats;	// Per node: completed visits in the high 32 bits, half-points won by the player who moved into it in the low 32.
+	private final AtomicIntegerArray inFlight;	// Per node: playouts through it that have not backed up yet.
+	private final AtomicIntegerArray firstChild;	// Per node: index of its first child, or LEAF, EXPANDING or FULL.
+	private final byte[] childCount;	// Per node: number of children, once expanded.
+	private final byte[] cell;	// Per node: the cell of the move into it.
+	private final byte[] mover;	// Per node: the player who made the move into it.
+	private final AtomicInteger nextFree = new AtomicInteger();	// First unused node.
+
+	private double exploration = Math.sqrt(2);	// UCT exploration constant.
+	private long timeBudgetMillis;	// Milliseconds per move, 0 for no limit.
+	private long playoutBudget = 10000;	// Playouts per move, 0 for no limit.
+	private int threads = 1;
+	private ExecutorService helpers;	// Runs threads - 1 helper searches, null when single-threaded.
+	private long seed = 1;	// Seeds each thread's random playouts, advanced every move.
+
+	// statistics
+	private long playouts;	// Playouts in the last search.
+	private long elapsedNanos;	// Time of the last search.
+	private long totalPlayouts;	// Playouts since construction.
+	private long totalNanos;	// Search time since construction.
+
+	/**
+	 * Constructor: a player with an arena of 2^20 nodes (about 19 MB).
+	 * @param symbol
+	 */
+	public MctsPlayer(char symbol)
+	{
+		this(symbol, 1 << 20);
+	}
+
+	/**
+	 * Constructor: a player with an arena of the given size. Once the arena is full,
+	 * the search goes on without growing the tree.
+	 * @param symbol
+	 * @param capacity - nodes in the arena, about 19 bytes each
+	 * @throws IllegalArgumentException if the arena cannot hold a root and its children on every board
+	 */
+	public MctsPlayer(char symbol, int capacity)
+	{
+		super(symbol);
+		if(capacity < Geometry.MAX_CELLS + 1) {
+			throw new IllegalArgumentException("An MCTS arena needs at least " + (Geometry.MAX_CELLS + 1) + " nodes, not " + capacity + ".");
+		}
+		this.capacity = capacity;
+		stats = new AtomicLongArray(capacity);
+		inFlight = new AtomicIntegerArray(capacity);
+		firstChild = new AtomicIntegerArray(capacity);
+		childCount = new byte[capacity];
+		cell = new byte[capacity];
+		mover = new byte[capacity];
+	}
+
+	/**
+	 * Limits each move by time. The search stops at whichever budget runs out first.
+	 * @param timeBudgetMillis - milliseconds per move, 0 for no limit
+	 */
+	public void setTimeBudget(long timeBudgetMillis)
+	{
+		this.timeBudgetMillis = timeBudgetMillis;
+	}
+
+	/**
+	 * Limits each move by number of playouts. The search stops at whichever budget runs out first.
+	 * @param playoutBudget - playouts per move, 0 for no limit
+	 */
+	public void setPlayoutBudget(long playoutBudget)
+	{
+		this.playoutBudget = playoutBudget;
+	}
+
+	/**
+	 * Sets the number of threads that search the shared tree.
+	 * @param threads - 1 or less searches on the calling thread only
+	 */
+	public void setThreads(int threads)
+	{
+		if(helpers != null) helpers.shutdown();
+		this.threads = Math.max(1, threads);
+		helpers = null;
+		if(this.threads > 1) {
+			// idle helpers exit, so players that are dropped without shutting down leave no threads behind
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(this.threads - 1, this.threads - 1, 1, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), runnable -> {
+						Thread thread = new Thread(runnable, "mcts-" + playerSymbol);
+						thread.setDaemon(true);
+						return thread;
+					});
+			pool.allowCoreThreadTimeOut(true);
+			helpers = pool;
+		}
+	}
+
+	/**
+	 * Sets the UCT exploration constant: higher values try weaker-looking moves more often.
+	 * @param exploration - sqrt(2) by default
+	 */
+	public void setExploration(double exploration)
+	{
+		this.exploration = exploration;
+	}
+
+	/**
+	 * Sets the seed of the random playouts. With one thread and a playout budget, the same seed
+	 * plays the same moves.
+	 * @param seed
+	 */
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the number of playouts in the last search.
+	 * @return
+	 */
+	public long getPlayouts()
+	{
+		return playouts;
+	}
+
+	/**
+	 * Returns the wall-clock time of the last search, in nanoseconds.
+	 * @return
+	 */
+	public long getElapsedNanos()
+	{
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the playouts per second of the last search.
+	 * @return
+	 */
+	public double getPlayoutsPerSecond()
+	{
+		return elapsedNanos > 0 ? playouts * 1e9 / elapsedNanos : 0;
+	}
+
+	/**
+	 * Returns the number of playouts of every search since this player was constructed.
+	 * @return
+	 */
+	public long getTotalPlayouts()
+	{
+		return totalPlayouts;
+	}
+
+	/**
+	 * Returns the time spent searching since this player was constructed, in nanoseconds.
+	 * @return
+	 */
+	public long getTotalNanos()
+	{
+		return totalNanos;
+	}
+
+	/**
+	 * Returns the number of arena nodes the last search used.
+	 * @return
+	 */
+	public int getNodesUsed()
+	{
+		return Math.min(nextFree.get(), capacity);
+	}
+
+	/**
+	 * overrides Player's makeMove() to use Monte Carlo tree search.
+	 * Returns null if this player has no valid move and must pass, as MinimaxPlayer does.
+	 */
+	public Move makeMove(Board board)
+	{
+		long startTime = System.nanoTime();
+		Geometry geometry = board.getGeometry();
+
+		// no valid move: the root would expand into the opponent's moves, so pass instead
+		if(!board.hasValidMove(playerSymbol)) {
+			playouts = 0;
+			elapsedNanos = System.nanoTime() - startTime;
+			return null;
+		}
+
+		// the root is the position with this player to move; nobody moved into it
+		nextFree.set(1);
+		stats.set(0, 0);
+		inFlight.set(0, 0);
+		firstChild.set(0, LEAF);
+		mover[0] = (byte)(playerSymbol == 'X' ? 'O' : 'X');
+		expand(0, board, playerSymbol);
+
+		int first = firstChild.get(0);
+		int count = first >= 0 ? childCount[0] & 0xFF : 0;
+		if(count > 1) {
+			search(board, startTime);
+		}
+		else {
+			playouts = 0;
+		}
+
+		// play the most visited move: its value is the best measured
+		int best = first;
+		for(int child = first + 1; child < first + count; child++) {
+			if((stats.get(child) >>> 32) > (stats.get(best) >>> 32)) best = child;
+		}
+
+		elapsedNanos = System.nanoTime() - startTime;
+		totalPlayouts += playouts;
+		totalNanos += elapsedNanos;
+		seed++;
+		int bestCell = cell[best] & 0xFF;
+		return new Move(geometry.rowOf(bestCell), geometry.colOf(bestCell), playerSymbol);
+	}
+
+	/**
+	 * Runs playouts on every thread until a budget runs out.
+	 * @param board - the root position
+	 * @param startTime - System.nanoTime() when the move started
+	 */
+	private void search(Board board, long startTime)
+	{
+		long deadline = timeBudgetMillis > 0 ? startTime + timeBudgetMillis * 1000000L : Long.MAX_VALUE;
+		long budget = playoutBudget > 0 ? playoutBudget : Long.MAX_VALUE;
+		if(deadline == Long.MAX_VALUE && budget == Long.MAX_VALUE) budget = 10000;
+		AtomicLong started = new AtomicLong();
+
+		Future<?>[] futures = new Future<?>[threads - 1];
+		for(int i = 1; i < threads; i++) {
+			Worker worker = new Worker(board, seed * 31 + i);
+			long limit = budget;
+			futures[i - 1] = helpers.submit(() -> worker.run(started, limit, deadline));
+		}
+		new Worker(board, seed * 31).run(started, budget, deadline);
+
+		try {
+			for(Future<?> future : futures) future.get();
+		}
+		catch(InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("MCTS helper search failed.", e);
+		}
+		playouts = Math.min(started.get(), budget);
+	}
+
+	/**
+	 * Gives a leaf its children: one per valid move of the player to move, who passes if it has none.
+	 * Only the thread that claims the leaf expands it; the others go on as if it were still a leaf.
+	 * @param node - a leaf
+	 * @param board - the position at the node, not terminal
+	 * @param player - the player to move at the node, before any pass
+	 * @return true if this thread expanded the node
+	 */
+	private boolean expand(int node, Board board, char player)
+	{
+		if(!firstChild.compareAndSet(node, LEAF, EXPANDING)) return false;
+		if(!board.hasValidMove(player)) player = player == 'X' ? 'O' : 'X';
+
+		long low = board.getValidMoveMask(player, 0);
+		long high = board.getValidMoveMask(player, 1);
+		int count = Long.bitCount(low) + Long.bitCount(high);
+		int first = nextFree.getAndAdd(count);
+		if(first + count > capacity) {
+			firstChild.set(node, FULL);
+			return false;
+		}
+
+		int child = first;
+		for(int word = 0; word < 2; word++) {
+			for(long bits = word == 0 ? low : high; bits != 0L; bits &= bits - 1) {
+				cell[child] = (byte)((word << 6) | Long.numberOfTrailingZeros(bits));
+				mover[child] = (byte)player;
+				stats.set(child, 0);
+				inFlight.set(child, 0);
+				firstChild.set(child, LEAF);
+				child++;
+			}
+		}
+		childCount[node] = (byte)count;
+
+		// publishing the first child makes the children visible to every thread
+		firstChild.set(node, first);
+		return true;
+	}
+
+	/**
+	 * Returns the child with the highest UCT value. Unvisited children come first. Each playout
+	 * still in flight through a node counts as VIRTUAL_LOSS visits that won nothing.
+	 * @param node - an expanded node
+	 * @return
+	 */
+	private int select(int node)
+	{
+		int first = firstChild.get(node);
+		int count = childCount[node] & 0xFF;
+		double logVisits = Math.log(Math.max(1, (stats.get(node) >>> 32) + VIRTUAL_LOSS * inFlight.get(node)));
+
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for(int child = first; child < first + count; child++) {
+			long s = stats.get(child);
+			long visits = (s >>> 32) + VIRTUAL_LOSS * inFlight.get(child);
+			if(visits == 0) return child;
+
+			double value = (s & 0xFFFFFFFFL) / (2.0 * visits) + exploration * Math.sqrt(logVisits / visits);
+			if(value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * One searching thread: its own copy of the root position, the path of its current
+	 * playout and its random number generator.
+	 */
+	private class Worker {
+		private final Board board;
+		private final int[] path;	// nodes descended through, root first
+		private final int[] made;	// cells played on the board since the root, to unmake
+		private long random;	// xorshift state, never 0
+
+		Worker(Board root, long seed)
+		{
+			board = new Board(root);
+			int cells = root.getGeometry().getCells();
+			path = new int[cells + 1];
+			made = new int[cells];
+			random = seed * 0x9E3779B97F4A7C15L | 1;
+		}
+
+		/**
+		 * Runs playouts until the shared count reaches the budget or the deadline passes.
+		 * @param started - playouts started by every thread
+		 * @param budget
+		 * @param deadline - System.nanoTime() at which to stop
+		 */
+		void run(AtomicLong started, long budget, long deadline)
+		{
+			while(started.getAndIncrement() < budget && System.nanoTime() < deadline) playout();
+		}
+
+		/**
+		 * Descends to a leaf, expands it, plays a random game from it and backs up the result.
+		 */
+		private void playout()
+		{
+			int node = 0;
+			int depth = 0;
+			int moves = 0;
+			char player = playerSymbol;
+			inFlight.incrementAndGet(0);
+			path[depth++] = 0;
+
+			// selection: follow UCT through expanded nodes, expanding the leaf it stops at
+			while(!board.isTerminal()) {
+				if(firstChild.get(node) < 0) {
+					boolean expanded = (stats.get(node) >>> 32) >= EXPANSION_THRESHOLD && expand(node, board, player);
+					if(!expanded) break;
+				}
+				node = select(node);
+				inFlight.incrementAndGet(node);
+				path[depth++] = node;
+
+				int c = cell[node] & 0xFF;
+				char moved = (char)mover[node];
+				board.makeMove(c, moved);
+				made[moves++] = c;
+				player = moved == 'X' ? 'O' : 'X';
+			}
+
+			// simulation: random valid moves to the end of the game
+			while(!board.isTerminal()) {
+				long low = board.getValidMoveMask(player, 0);
+				long high = board.getValidMoveMask(player, 1);
+				int count = Long.bitCount(low) + Long.bitCount(high);
+				if(count == 0) {
+					// the game goes on, so the other player can move
+					player = player == 'X' ? 'O' : 'X';
+					continue;
+				}
+
+				int c = nthBit(low, high, (int)(((nextRandom() >>> 32) * count) >>> 32));
+				board.makeMove(c, player);
+				made[moves++] = c;
+				player = player == 'X' ? 'O' : 'X';
+			}
+			char winner = board.getWinner();
+
+			// backpropagation: each node scores the result for the player who moved into it
+			for(int i = 0; i < depth; i++) {
+				int n = path[i];
+				int points = winner == 'd' ? 1 : winner == (char)mover[n] ? 2 : 0;
+				stats.addAndGet(n, (1L << 32) + points);
+				inFlight.decrementAndGet(n);
+			}
+			while(moves > 0) board.unmakeMove(made[--moves]);
+		}
+
+		/**
+		 * Returns the next pseudo-random number (xorshift64*).
+		 * @return
+		 */
+		private long nextRandom()
+		{
+			random ^= random >>> 12;
+			random ^= random << 25;
+			random ^= random >>> 27;
+			return random * 0x2545F4914F6CDD1DL;
+		}
+	}
+
+	/**
+	 * Returns the cell of the n-th set bit of a two-word mask.
+	 * @param low - cells 0-63
+	 * @param high - cells 64-127
+	 * @param n - 0 for the lowest set bit
+	 * @return
+	 */
+	private static int nthBit(long low, long high, int n)
+	{
+		int base = 0;
+		int lowCount = Long.bitCount(low);
+		if(n >= lowCount) {
+			n -= lowCount;
+			low = high;
+			base = 64;
+		}
+		for(; n > 0; n--) low &= low - 1;
+		return base + Long.numberOfTrailingZeros(low);
+	}
+}
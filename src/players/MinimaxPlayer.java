@@ -1,29 +1,265 @@
 package players;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import game.Board;
 import game.GameState;
+import game.Geometry;
 import game.Move;
-import utils.Heuristics;
+import utils.Evaluator;
+import utils.IncrementalEvaluator;
 import utils.Node;
+import utils.OpeningBook;
+import utils.SolutionDatabase;
+import utils.TranspositionTable;
 
 /**
  * Implements a player that uses the minimax algorithm to choose moves.
  */
 public class MinimaxPlayer extends Player {
 	
+	// size of the table an alpha-beta player gets unless it is given one, 2^20 slots (16 MB)
+	private static final int DEFAULT_TABLE_BITS = 20;
+	
 	private int maxDepth;	// Depth to search in the minimax tree.
+	private boolean alphaBeta;	// Prune with alpha-beta, or run plain minimax as a reference.
+	private MoveOrderer moveOrderer;	// Successor ordering for alpha-beta, null keeps generation order.
+	private TranspositionTable table;	// Positions searched so far this game, null disables it.
+	private boolean defaultTable;	// Allocate DEFAULT_TABLE_BITS as table on first use, unless one is set first.
+	protected long timeBudgetMillis;	// Per-move time budget for iterative deepening, 0 searches straight to maxDepth.
+	private ExecutorService executor;	// Searches root moves in parallel, null searches them in order.
+	private ForkJoinPool ownPool;	// The pool setParallelism made for executor, shut down when replaced; null if the caller owns executor.
+	private Evaluator evaluator;	// Heuristic applied at the search horizon.
+	private OpeningBook book;	// Consulted before searching, null to always search.
+	private SolutionDatabase solutions;	// Solved positions, played perfectly without searching; null if none.
+	private ExecutorService ponderer;	// Ponders on the opponent's time, null if pondering is off.
+	private Future<?> ponderTask;	// The running or last ponder, null if none.
+	private AtomicBoolean ponderStop;	// Stops ponderTask.
+	private final ConcurrentHashMap<Long, Move> pondered = new ConcurrentHashMap<Long, Move>();	// Moves pondering searched to full depth, by position hash.
+	private final CopyOnWriteArrayList<SearchListener> listeners = new CopyOnWriteArrayList<SearchListener>();	// Told about every finished search.
+	private Board root;	// The last search's position, null before the first.
+	private int[] principalVariation = new int[0];	// Cells of the line the last search expected, starting with the move played.
 	
 	/**
 	 * Constructor to initialize the player and max depth.
+	 * Searches with alpha-beta pruning and neighbor-count move ordering.
 	 * @param symbol
 	 * @param maxDepth
 	 */
 	public MinimaxPlayer(char symbol, int maxDepth)
+	{
+		this(symbol, maxDepth, true);
+	}
+	
+	/**
+	 * Constructor to initialize the player, max depth and search mode.
+	 * @param symbol
+	 * @param maxDepth
+	 * @param alphaBeta - true to prune with alpha-beta, false for plain minimax
+	 */
+	public MinimaxPlayer(char symbol, int maxDepth, boolean alphaBeta)
 	{
 		super(symbol);
 		this.maxDepth = maxDepth;
+		this.alphaBeta = alphaBeta;
+		this.moveOrderer = MoveOrderer.NEIGHBORS;
+		this.evaluator = Evaluator.INCREMENTAL;
+		this.defaultTable = alphaBeta;
+	}
+	
+	/**
+	 * Sets the successor ordering used by alpha-beta.
+	 * Ordering never changes the chosen move, only how much of the tree gets pruned.
+	 * @param moveOrderer - the ordering, or null to keep Board.getSuccessorMoves order
+	 */
+	public void setMoveOrderer(MoveOrderer moveOrderer)
+	{
+		this.moveOrderer = moveOrderer;
+	}
+	
+	/**
+	 * Sets the heuristic applied at the search horizon. Clears the transposition table,
+	 * since its scores came from the previous heuristic.
+	 * Evaluator.INCREMENTAL (the default) updates the score on each make/unmake instead.
+	 * @param evaluator - e.g. Evaluator.SEQUENCES, Evaluator.PATTERNS or Evaluator.INCREMENTAL
+	 */
+	public void setEvaluator(Evaluator evaluator)
+	{
+		this.evaluator = evaluator;
+		if(table != null) table.clear();
+	}
+	
+	/**
+	 * Switches alpha-beta to iterative deepening under a per-move time budget.
+	 * Depths 1, 2, 3... are searched until the budget runs out (or maxDepth is reached),
+	 * and the move from the deepest completed iteration is played.
+	 * @param timeBudgetMillis - milliseconds per move, 0 to always search to maxDepth
+	 */
+	public void setTimeBudget(long timeBudgetMillis)
+	{
+		this.timeBudgetMillis = timeBudgetMillis;
+	}
+	
+	/**
+	 * Searches root moves in parallel on a fork-join pool with the given number of threads.
+	 * The chosen move is the same as the sequential search's. The player owns the pool,
+	 * and shuts it down when a later call to this or setExecutor replaces it.
+	 * @param threads - worker threads, 1 or less searches sequentially
+	 */
+	public void setParallelism(int threads)
+	{
+		ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		setExecutor(pool);
+		ownPool = pool;
+	}
+	
+	/**
+	 * Searches root moves in parallel on the given executor.
+	 * The transposition table is not shared with parallel root searches.
+	 * The caller owns the executor: the player never shuts it down.
+	 * @param executor - the executor, or null to search sequentially
+	 */
+	public void setExecutor(ExecutorService executor)
+	{
+		if(ownPool != null) ownPool.shutdown();
+		ownPool = null;
+		this.executor = executor;
+	}
+	
+	/**
+	 * Sets the transposition table used by alpha-beta. The table is kept across makeMove calls,
+	 * so results from earlier moves in the game are reused. An alpha-beta player that is not given
+	 * one allocates a 2^20-slot table when it first needs it.
+	 * @param table - the table, or null to search without one
+	 */
+	public void setTranspositionTable(TranspositionTable table)
+	{
+		this.table = table;
+		defaultTable = false;
+	}
+	
+	/**
+	 * Sets the opening book. Positions in the book are played without searching,
+	 * any other position is searched as usual.
+	 * @param book - the book, or null to always search
+	 */
+	public void setOpeningBook(OpeningBook book)
+	{
+		this.book = book;
+	}
+	
+	/**
+	 * Sets the solution database. In positions it has solved the player moves perfectly
+	 * without searching, and it falls back to the book and search everywhere else.
+	 * @param solutions - the database, or null to not use one
+	 */
+	public void setSolutionDatabase(SolutionDatabase solutions)
+	{
+		this.solutions = solutions;
+	}
+	
+	/**
+	 * Turns pondering on or off. While pondering, each search is followed by a background search
+	 * of the opponent's likely replies, most likely first, which fills the transposition table and
+	 * keeps the moves it finds. If the opponent plays a reply that was searched to full depth,
+	 * that move is played at once; otherwise the search runs as usual, helped by the table.
+	 * @param enabled
+	 */
+	public void setPondering(boolean enabled)
+	{
+		stopPondering();
+		if(enabled && ponderer == null) {
+			ponderer = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "ponder-" + playerSymbol);
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		else if(!enabled && ponderer != null) {
+			ponderer.shutdown();
+			ponderer = null;
+		}
+	}
+	
+	/**
+	 * Stops pondering, if it is running, and waits for it to unwind.
+	 * Called at the start of every search; call it when the game ends to free the CPU.
+	 */
+	public void stopPondering()
+	{
+		if(ponderTask == null) return;
+		ponderStop.set(true);
+		try {
+			ponderTask.get();
+		}
+		catch(InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Pondering failed.", e);
+		}
+		ponderTask = null;
+	}
+	
+	/**
+	 * Adds a listener that receives the statistics of every search, e.g. SearchListener.CONSOLE.
+	 * @param listener
+	 */
+	public void addSearchListener(SearchListener listener)
+	{
+		listeners.add(listener);
+	}
+	
+	public void removeSearchListener(SearchListener listener)
+	{
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Returns the transposition table, for its hit/miss/collision counters.
+	 * @return the table, or null if disabled
+	 */
+	public TranspositionTable getTranspositionTable()
+	{
+		return table();
+	}
+	
+	/**
+	 * Returns the line the last search expected: the move it played, the opponent's best reply,
+	 * and so on, as far as the transposition table still holds it.
+	 * @return the moves, empty before the first search
+	 */
+	public ArrayList<Move> getPrincipalVariation()
+	{
+		ArrayList<Move> line = new ArrayList<Move>();
+		char player = playerSymbol;
+		for(int cell : principalVariation) {
+			line.add(new Move(root.getGeometry().rowOf(cell), root.getGeometry().colOf(cell), player));
+			player = player == 'X' ? 'O' : 'X';
+		}
+		return line;
+	}
+	
+	/**
+	 * Forgets the previous game: stops pondering and clears the transposition table and the
+	 * retained principal variation, so nothing carries over into the next game.
+	 */
+	@Override
+	public void newGame()
+	{
+		stopPondering();
+		pondered.clear();
+		if(table != null) table.clear();
+		root = null;
+		principalVariation = new int[0];
 	}
 	
 	/**
@@ -31,30 +267,258 @@ public class MinimaxPlayer extends Player {
 	 */
 	public Move makeMove(Board board)
 	{
+		return search(board).getMove();
+	}
+	
+	/**
+	 * Chooses a move with minimax and reports what the search did.
+	 * Every listener hears about the search before this returns.
+	 * @param board - the current board
+	 * @return the chosen move with the search's statistics, a null move if the player must pass
+	 */
+	public SearchStats search(Board board)
+	{
+		SearchEvent event = new SearchEvent();
+		event.begin();
+		
 		// start clock
 		long startTime = System.nanoTime();
+		stopPondering();
+		
+		// play a solved, book or pondered move if there is one, otherwise use minimax to determine best move to take
+		SearchContext ctx = new SearchContext(maxDepth, table());
+		Move move = solvedMove(board, ctx);
+		if(move == null) move = bookMove(board, ctx);
+		if(move == null) move = ponderedMove(board, ctx);
+		if(move == null) {
+			GameState state = new GameState(board, playerSymbol);
+			Node node = new Node(state);
+			move = minimaxDecision(node, ctx);
+		}
+		
+		// end clock
+		SearchStats stats = new SearchStats(playerSymbol, move, ctx, System.nanoTime() - startTime);
+		
+		event.end();
+		if(event.shouldCommit()) {
+			event.player = playerSymbol;
+			event.move = String.valueOf(move);
+			event.nodes = stats.getNodes();
+			event.leafEvaluations = stats.getLeafEvaluations();
+			event.terminalHits = stats.getTerminalHits();
+			event.cutoffs = stats.getCutoffs();
+			event.depthReached = stats.getDepthReached();
+			event.commit();
+		}
+		
+		// a player with no valid move passes: there is no line to remember or ponder on
+		if(move != null) rememberRoot(board, move);
+		else root = null;
+		for(SearchListener listener : listeners) listener.searchCompleted(stats);
+		if(ponderer != null && move != null) startPondering(board, move);
+		return stats;
+	}
+	
+	/**
+	 * Keeps the searched position and the line the search expected from it,
+	 * read back from the transposition table while its entries are fresh.
+	 * @param board - the position searched
+	 * @param move - the move played from it
+	 */
+	private void rememberRoot(Board board, Move move)
+	{
+		root = new Board(board);
+		Geometry geometry = board.getGeometry();
 		
-		// use minimax to determine best move to take
-		GameState state = new GameState(board, playerSymbol);
-		Node node = new Node(state);
-		Move move = minimaxDecision(node);
+		int[] line = new int[Math.max(1, depthLimit(board))];
+		int length = 0;
+		Board next = new Board(board);
+		char player = playerSymbol;
+		int cell = cellOf(board, move);
+		while(true) {
+			next.makeMove(cell, player);
+			line[length++] = cell;
+			if(length == line.length || table == null || next.isTerminal()) break;
+			
+			// the line stops at a pass, or where the table no longer has a valid best move
+			player = player == 'X' ? 'O' : 'X';
+			cell = TranspositionTable.bestCell(table.probe(GameState.hash(next, player)));
+			if(cell < 0 || !next.isValidMove(geometry.rowOf(cell), geometry.colOf(cell), player)) break;
+		}
+		principalVariation = Arrays.copyOf(line, length);
+	}
+	
+	/**
+	 * Returns the move the last search expected this player to make in the given position:
+	 * if the position descends from the last root by the start of the principal variation,
+	 * the variation's next move.
+	 * @param board - the position about to be searched
+	 * @return the cell to search first, or -1 if the position left the principal variation
+	 */
+	protected int reuseHint(Board board)
+	{
+		Board root = this.root;
+		if(root == null || root.getGeometry() != board.getGeometry()) return -1;
+		for(int word = 0; word < 2; word++) {
+			if((root.getPlayerBits('X', word) & ~board.getPlayerBits('X', word)) != 0L) return -1;
+			if((root.getPlayerBits('O', word) & ~board.getPlayerBits('O', word)) != 0L) return -1;
+		}
 		
-		// end and print clock
-		double elapsedTime = (System.nanoTime() - startTime) / 1000000.0;
-		System.out.print(String.format("%.2fms\n", elapsedTime));
+		// the moves since the last root must be the variation's first moves, ending with the opponent's
+		char minimizingPlayer = playerSymbol == 'X' ? 'O' : 'X';
+		int played = board.getPieceCount() - root.getPieceCount();
+		int[] line = principalVariation;
+		if((played & 1) != 0 || played >= line.length) return -1;
+		for(int i = 0; i < played; i++) {
+			if(board.getPiece(line[i]) != ((i & 1) == 0 ? playerSymbol : minimizingPlayer)) return -1;
+		}
 		
+		int cell = line[played];
+		Geometry geometry = board.getGeometry();
+		return board.isValidMove(geometry.rowOf(cell), geometry.colOf(cell), playerSymbol) ? cell : -1;
+	}
+	
+	/**
+	 * Returns the move pondering found for this position, if it searched it to full depth.
+	 * @param board - the current board
+	 * @param ctx - the search state, marked on a hit
+	 * @return the move, or null if the position was not pondered
+	 */
+	private Move ponderedMove(Board board, SearchContext ctx)
+	{
+		Move move = pondered.get(GameState.hash(board, playerSymbol));
+		pondered.clear();
+		if(move == null) return null;
+		
+		ctx.ponderHit = true;
+		ctx.depthReached = depthLimit(board);
 		return move;
 	}
 	
+	/**
+	 * Starts pondering the position after this player's move.
+	 * @param board - the board before the move
+	 * @param move - the move this player is about to play
+	 */
+	private void startPondering(Board board, Move move)
+	{
+		Board after = new Board(board);
+		after.placePiece(move.getRow(), move.getCol(), playerSymbol);
+		if(after.isTerminal()) return;
+		
+		AtomicBoolean stop = new AtomicBoolean(false);
+		ponderStop = stop;
+		ponderTask = ponderer.submit(() -> ponder(after, stop));
+	}
+	
+	/**
+	 * Searches this player's reply to each of the opponent's moves, most likely first,
+	 * until every one is done or stop is set.
+	 * @param after - the board with the opponent to move
+	 * @param stop - set when the opponent has moved
+	 */
+	private void ponder(Board after, AtomicBoolean stop)
+	{
+		char minimizingPlayer = playerSymbol == 'X' ? 'O' : 'X';
+		
+		// the opponent's best reply, as far as the last search saw, comes first
+		int predicted = -1;
+		if(table != null) predicted = TranspositionTable.bestCell(table.probe(GameState.hash(after, minimizingPlayer)));
+		ArrayList<Move> replies = after.getSuccessorMoves(minimizingPlayer);
+		orderMoves(after, replies, predicted);
+		
+		for(Move reply : replies)
+		{
+			Board next = new Board(after);
+			next.placePiece(reply.getRow(), reply.getCol(), minimizingPlayer);
+			if(next.isTerminal() || !next.hasValidMove(playerSymbol)) continue;
+			
+			SearchContext ctx = new SearchContext(1, table);
+			ctx.stop = stop;
+			Move move = deepen(next, 1, null, ctx);
+			if(stop.get()) return;
+			
+			if(move != null && ctx.depthReached == depthLimit(next)) pondered.put(GameState.hash(next, playerSymbol), move);
+		}
+	}
+	
+	/**
+	 * Finds a move that keeps the position's solved value: a winning move from a won position,
+	 * a drawing move from a drawn one. From a lost position any solved move will do.
+	 * @param board - the current board
+	 * @param ctx - the search state, marked if there is a solved move
+	 * @return the move, or null if the position or its successors are not solved
+	 */
+	private Move solvedMove(Board board, SearchContext ctx)
+	{
+		if(solutions == null) return null;
+		
+		int value = solutions.get(GameState.hash(board, playerSymbol));
+		if(value == SolutionDatabase.UNKNOWN) return null;
+		
+		char minimizingPlayer = playerSymbol == 'X' ? 'O' : 'X';
+		Board next = new Board(board);
+		for(Move successorMove : board.getSuccessorMoves(playerSymbol))
+		{
+			int cell = cellOf(board, successorMove);
+			next.makeMove(cell, playerSymbol);
+			
+			// value of the move for this player
+			int moveValue;
+			if(next.isTerminal()) {
+				char res = next.getWinner();
+				moveValue = res == 'd' ? SolutionDatabase.DRAW : res == playerSymbol ? SolutionDatabase.WIN : SolutionDatabase.LOSS;
+			}
+			else if(!next.hasValidMove(minimizingPlayer)) {
+				// the opponent passes
+				moveValue = solutions.get(GameState.hash(next, playerSymbol));
+			}
+			else {
+				int opponentValue = solutions.get(GameState.hash(next, minimizingPlayer));
+				moveValue = opponentValue == SolutionDatabase.UNKNOWN ? SolutionDatabase.UNKNOWN : -opponentValue;
+			}
+			next.unmakeMove(cell);
+			
+			if(moveValue == value) {
+				// a solved win or loss scores like the won or lost position it leads to
+				ctx.solvedMove = true;
+				ctx.score = value * 1000;
+				ctx.scored = true;
+				ctx.depthReached = board.getGeometry().getCells() - board.getPieceCount();
+				return successorMove;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Looks the position up in the opening book.
+	 * @param board - the current board
+	 * @param ctx - the search state, marked if the book has a move
+	 * @return the book move, or null if the position is not in the book
+	 */
+	private Move bookMove(Board board, SearchContext ctx)
+	{
+		if(book == null || book.getGeometry() != board.getGeometry()) return null;
+		
+		Geometry geometry = board.getGeometry();
+		int cell = book.probe(GameState.hash(board, playerSymbol));
+		if(cell < 0 || !board.isValidMove(geometry.rowOf(cell), geometry.colOf(cell), playerSymbol)) return null;
+		
+		ctx.bookMove = true;
+		ctx.depthReached = book.getDepth();
+		return new Move(geometry.rowOf(cell), geometry.colOf(cell), playerSymbol);
+	}
+	
 	/**
 	 * Runs the minimax algorithm to determine the best move for this player
 	 * @param node - the current state of the game
+	 * @param ctx - the search state, receives the search's counters
 	 * @return the best move for this player, according to minimax
 	 */
-	private Move minimaxDecision(Node node)
+	private Move minimaxDecision(Node node, SearchContext ctx)
 	{
-		// count the number of nodes generated
-		AtomicInteger numGenerated = new AtomicInteger(0);
+		if(alphaBeta) return alphaBetaDecision(node.getState().getBoard(), ctx);
 		
 		// determine the opposing player
 		char minimizingPlayer = playerSymbol == 'X' ? 'O' : 'X';
@@ -77,80 +541,631 @@ public class MinimaxPlayer extends Player {
 			GameState nextState = new GameState(nextBoard, minimizingPlayer);
 			Node successor = new Node(nextState, node.getDepth() + 1);
 			
-			numGenerated.incrementAndGet();
+			ctx.nodes++;
 			
 			// make the maximum minValue
-			int res = minValue(successor, minimizingPlayer, numGenerated);
+			int res = minValue(successor, minimizingPlayer, ctx);
 			if(maxVal < res) {
 				maxVal = res;
 				maxMove = successorMove;
 			}
 		}
-		// print result
-		System.out.print(playerSymbol + " made move " + maxMove.toString() + " and generated " + numGenerated + " nodes in ");
+		ctx.depthReached = maxDepth;
+		ctx.score = maxVal;
+		ctx.scored = maxMove != null;
 		return maxMove;
 	}
 	
-	private int maxValue(Node node, char minPlayer, AtomicInteger numGenerated)
+	private int maxValue(Node node, char minPlayer, SearchContext ctx)
 	{		
 		GameState state = node.getState();
 		Board board = state.getBoard();
 		
 		// check if at max depth
-		if(node.getDepth() == this.maxDepth) return evaluate(board);
+		if(node.getDepth() == this.maxDepth) return evaluate(board, ctx);
 		
 		// if terminal then return Utility(state)
 		if(board.isTerminal()) {
+			ctx.terminals++;
 			char res = board.getWinner();
 			if(res == playerSymbol) return 1000;
 			if(res == 'd') return 0;
 			else return -1000;
 		}
 				
+		// no valid move, pass: the game goes on, so the other player can move
+		ArrayList<Node> successors = node.Expand(playerSymbol);
+		if(successors.isEmpty()) return minValue(node, minPlayer, ctx);
+		
 		// v <- -infinity
 		int v = Integer.MIN_VALUE;
 		
 		// for a,s in Successors(state)
-		for(Node successor : node.Expand(playerSymbol))
+		for(Node successor : successors)
 		{
-			numGenerated.incrementAndGet();
+			ctx.nodes++;
 			
 			// do v <- Max(v, Min-Value(s))
-			v = Math.max(v, minValue(successor, minPlayer, numGenerated));
+			v = Math.max(v, minValue(successor, minPlayer, ctx));
 		}
 		return v;
 	}
 	
-	private int minValue(Node node, char minPlayer, AtomicInteger numGenerated)
+	private int minValue(Node node, char minPlayer, SearchContext ctx)
 	{		
 		GameState state = node.getState();
 		Board board = state.getBoard();
 		
 		// check if at max depth
-		if(node.getDepth() == this.maxDepth) return evaluate(board);
+		if(node.getDepth() == this.maxDepth) return evaluate(board, ctx);
 		
 		// if terminal then return Utility(state)
 		if(board.isTerminal()) {
+			ctx.terminals++;
 			char res = board.getWinner();
 			if(res == playerSymbol) return 1000;
 			if(res == 'd') return 0;
 			else return -1000;
 		}
 		
+		// no valid move, pass: the game goes on, so the other player can move
+		ArrayList<Node> successors = node.Expand(minPlayer);
+		if(successors.isEmpty()) return maxValue(node, minPlayer, ctx);
+		
 		// v <- infinity
 		int v = Integer.MAX_VALUE;
 		
 		// for a,s in Successors(state)
-		for(Node successor : node.Expand(minPlayer))
+		for(Node successor : successors)
 		{
-			numGenerated.incrementAndGet();
+			ctx.nodes++;
 			
 			// do v <- Min(v, Max-Value(s))
-			v = Math.min(v,  maxValue(successor, minPlayer, numGenerated));
+			v = Math.min(v,  maxValue(successor, minPlayer, ctx));
 		}
 		return v;
 	}
 	
+	/**
+	 * Runs minimax with alpha-beta pruning. Returns the same move as minimaxDecision:
+	 * among equally scored root moves the one generated first still wins.
+	 * With a time budget, deepens one ply at a time and keeps the last completed result.
+	 * @param board - the current board
+	 * @param ctx - the search state, receives the search's counters
+	 * @return the best move for this player, according to minimax
+	 */
+	protected Move alphaBetaDecision(Board board, SearchContext ctx)
+	{
+		// entries from earlier moves stay usable, but become replaceable
+		if(ctx.table != null) ctx.table.newSearch();
+		
+		Move maxMove;
+		if(timeBudgetMillis <= 0) {
+			maxMove = alphaBetaRoot(board, -1, ctx);
+		}
+		else {
+			long start = System.nanoTime();
+			
+			// the first iteration always completes, so there is a move to play
+			ctx.searchDepth = 1;
+			maxMove = alphaBetaRoot(board, -1, ctx);
+			ctx.deadline = start + timeBudgetMillis * 1000000L;
+			maxMove = deepen(board, 2, maxMove, ctx);
+		}
+		return maxMove;
+	}
+	
+	/**
+	 * Iterative deepening: searches startDepth, startDepth + 1... until the depth limit,
+	 * the deadline, or a stop request.
+	 * @param board - the current board
+	 * @param startDepth - first depth to search
+	 * @param maxMove - best move found so far, searched first; may be null
+	 * @param ctx - the search state
+	 * @return the best move of the deepest completed iteration, or maxMove if none completed
+	 */
+	protected Move deepen(Board board, int startDepth, Move maxMove, SearchContext ctx)
+	{
+		for(int depth = startDepth; depth <= depthLimit(board) && !ctx.shouldStop(); depth++) {
+			// the previous best move is searched first
+			ctx.searchDepth = depth;
+			Move move = alphaBetaRoot(board, maxMove == null ? -1 : cellOf(board, maxMove), ctx);
+			if(move == null) break;
+			maxMove = move;
+		}
+		return maxMove;
+	}
+	
+	/**
+	 * Returns the deepest useful search depth: maxDepth, or fewer if the board fills up first.
+	 * @param board
+	 * @return
+	 */
+	protected int depthLimit(Board board)
+	{
+		// searching past the last empty cell finds nothing new
+		int emptyCells = board.getGeometry().getCells() - board.getPieceCount();
+		return Math.min(maxDepth, emptyCells);
+	}
+	
+	/**
+	 * Searches every root move to ctx.searchDepth.
+	 * @param board - the current board
+	 * @param firstCell - cell to search first, or -1
+	 * @param ctx - the search state
+	 * @return the best move, or null if the deadline passed first
+	 */
+	protected Move alphaBetaRoot(Board board, int firstCell, SearchContext ctx)
+	{
+		ctx.timedOut = false;
+		
+		// determine the opposing player
+		char minimizingPlayer = playerSymbol == 'X' ? 'O' : 'X';
+		
+		// the previous iteration's best move, else the table's, else the one the last search expected
+		long key = GameState.hash(board, playerSymbol);
+		if(firstCell < 0 && ctx.table != null) firstCell = TranspositionTable.bestCell(ctx.table.probe(key));
+		if(firstCell < 0) firstCell = reuseHint(board);
+		
+		// remember each move's generation index, it decides ties
+		ArrayList<Move> successorMoves = board.getSuccessorMoves(playerSymbol);
+		ArrayList<Move> orderedMoves = new ArrayList<Move>(successorMoves);
+		if(moveOrderer != null) moveOrderer.order(board, orderedMoves);
+		if(ctx.table != null) orderByRetainedScores(board, orderedMoves, ctx.table);
+		moveToFront(board, orderedMoves, firstCell);
+		
+		// helper threads start from a different root move, so they spread over the tree
+		if(ctx.threadId > 0 && orderedMoves.size() > 2) {
+			Collections.rotate(orderedMoves.subList(1, orderedMoves.size()), -ctx.threadId);
+		}
+		
+		if(executor != null) return alphaBetaRootParallel(board, successorMoves, orderedMoves, ctx);
+		
+		Move maxMove = null;
+		int maxIndex = -1;
+		int maxVal = Integer.MIN_VALUE;
+		
+		// the whole search walks this one board with make/unmake
+		Board workBoard = new Board(board);
+		track(workBoard, ctx);
+		
+		for(Move successorMove : orderedMoves)
+		{
+			int cell = cellOf(board, successorMove);
+			makeMove(workBoard, cell, playerSymbol, ctx);
+			ctx.countNode();
+			
+			int index = successorMoves.indexOf(successorMove);
+			
+			// a move generated earlier only has to tie the best so far, a later one has to beat it
+			int alpha = maxVal;
+			if(maxMove != null && index < maxIndex && maxVal > Integer.MIN_VALUE) alpha = maxVal - 1;
+			
+			int res = alphaBetaMin(workBoard, 1, alpha, Integer.MAX_VALUE, minimizingPlayer, ctx);
+			unmakeMove(workBoard, cell, playerSymbol, ctx);
+			if(ctx.timedOut) return null;
+			
+			if(maxMove == null || res > alpha) {
+				maxVal = res;
+				maxMove = successorMove;
+				maxIndex = index;
+			}
+		}
+		ctx.depthReached = ctx.searchDepth;
+		ctx.score = maxVal;
+		ctx.scored = maxMove != null;
+		if(ctx.table != null && maxMove != null) {
+			ctx.table.store(key, ctx.searchDepth, TranspositionTable.EXACT, maxVal, cellOf(board, maxMove), ctx.threadId);
+		}
+		return maxMove;
+	}
+	
+	/**
+	 * Searches every root move as its own task on the executor.
+	 * 
+	 * Tasks share only the best root score found so far. Each task searches with alpha one below it,
+	 * so any move that could tie or beat the final best gets an exact score, while clearly worse moves
+	 * are still pruned. The best move is then picked in generation order, same as the sequential search.
+	 * @param board - the current board
+	 * @param successorMoves - root moves in generation order
+	 * @param orderedMoves - root moves in search order
+	 * @param ctx - the search state, receives every task's node count
+	 * @return the best move, or null if the deadline passed first
+	 */
+	private Move alphaBetaRootParallel(Board board, ArrayList<Move> successorMoves, ArrayList<Move> orderedMoves, SearchContext ctx)
+	{
+		char minimizingPlayer = playerSymbol == 'X' ? 'O' : 'X';
+		AtomicInteger sharedBest = new AtomicInteger(Integer.MIN_VALUE);
+		int searchDepth = ctx.searchDepth;
+		long deadline = ctx.deadline;
+		
+		// submit in search order, so the likely best move raises the bound early
+		ArrayList<Future<RootResult>> futures = new ArrayList<Future<RootResult>>();
+		for(Move successorMove : orderedMoves)
+		{
+			futures.add(executor.submit(() -> {
+				// each task gets its own board, counter and deadline
+				SearchContext task = new SearchContext(searchDepth, null);
+				task.deadline = deadline;
+				
+				Board nextBoard = new Board(board);
+				nextBoard.placePiece(successorMove.getRow(), successorMove.getCol(), playerSymbol);
+				track(nextBoard, task);
+				task.countNode();
+				
+				int best = sharedBest.get();
+				int alpha = best > Integer.MIN_VALUE ? best - 1 : Integer.MIN_VALUE;
+				int res = alphaBetaMin(nextBoard, 1, alpha, Integer.MAX_VALUE, minimizingPlayer, task);
+				
+				// a score at or below alpha is only an upper bound
+				boolean exact = !task.timedOut && (res > alpha || alpha == Integer.MIN_VALUE);
+				if(exact) sharedBest.accumulateAndGet(res, Math::max);
+				return new RootResult(res, exact, task);
+			}));
+		}
+		
+		// merge in generation order
+		RootResult[] results = new RootResult[successorMoves.size()];
+		try {
+			for(int i = 0; i < futures.size(); i++) {
+				RootResult result = futures.get(i).get();
+				results[successorMoves.indexOf(orderedMoves.get(i))] = result;
+				ctx.add(result.task);
+				if(result.task.timedOut) ctx.timedOut = true;
+			}
+		}
+		catch(InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Parallel root search failed.", e);
+		}
+		if(ctx.timedOut) return null;
+		ctx.depthReached = ctx.searchDepth;
+		
+		Move maxMove = null;
+		int maxVal = Integer.MIN_VALUE;
+		for(int i = 0; i < results.length; i++) {
+			if(!results[i].exact) continue;
+			if(maxMove == null || results[i].score > maxVal) {
+				maxVal = results[i].score;
+				maxMove = successorMoves.get(i);
+			}
+		}
+		ctx.score = maxVal;
+		ctx.scored = maxMove != null;
+		return maxMove;
+	}
+	
+	/**
+	 * Outcome of one parallel root task.
+	 */
+	private static class RootResult {
+		final int score;
+		final boolean exact;
+		final SearchContext task;
+		
+		RootResult(int score, boolean exact, SearchContext task)
+		{
+			this.score = score;
+			this.exact = exact;
+			this.task = task;
+		}
+	}
+	
+	private int alphaBetaMax(Board board, int depth, int alpha, int beta, char minPlayer, SearchContext ctx)
+	{
+		// check if at max depth
+		if(depth == ctx.searchDepth) return evaluate(board, ctx);
+		
+		// if terminal then return Utility(state)
+		if(board.isTerminal()) {
+			ctx.terminals++;
+			return utility(board);
+		}
+		
+		// reuse an earlier search of this position, if it was deep enough
+		long key = GameState.hash(board, playerSymbol);
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		int ttCell = -1;
+		if(ctx.table != null) {
+			long entry = ctx.table.probe(key);
+			if(entry != 0) {
+				if(TranspositionTable.owner(entry) != ctx.threadId) ctx.sharedHits++;
+				ttCell = TranspositionTable.bestCell(entry);
+				if(TranspositionTable.depth(entry) >= ctx.searchDepth - depth) {
+					int score = TranspositionTable.score(entry);
+					int bound = TranspositionTable.bound(entry);
+					if(bound == TranspositionTable.EXACT) return score;
+					if(bound == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+					else beta = Math.min(beta, score);
+					if(alpha >= beta) return score;
+				}
+			}
+		}
+		
+		int v = Integer.MIN_VALUE;
+		int bestCell = -1;
+		int[] moves = ctx.moves[depth];
+		int count = generateMoves(board, playerSymbol, ttCell, moves, ctx.scores[depth]);
+		
+		// no valid move, pass: the game goes on, so min can move; a pass takes no ply or move buffer
+		if(count == 0) return alphaBetaMin(board, depth, alpha, beta, minPlayer, ctx);
+		for(int i = 0; i < count; i++)
+		{
+			int cell = moves[i];
+			makeMove(board, cell, playerSymbol, ctx);
+			ctx.countNode();
+			
+			int res = alphaBetaMin(board, depth + 1, alpha, beta, minPlayer, ctx);
+			unmakeMove(board, cell, playerSymbol, ctx);
+			if(ctx.timedOut) return 0;
+			if(res > v) {
+				v = res;
+				bestCell = cell;
+			}
+			
+			// min will never allow this branch
+			if(v >= beta) {
+				ctx.cutoffs++;
+				break;
+			}
+			alpha = Math.max(alpha, v);
+		}
+		store(ctx, key, depth, alphaOrig, betaOrig, v, bestCell);
+		return v;
+	}
+	
+	private int alphaBetaMin(Board board, int depth, int alpha, int beta, char minPlayer, SearchContext ctx)
+	{
+		// check if at max depth
+		if(depth == ctx.searchDepth) return evaluate(board, ctx);
+		
+		// if terminal then return Utility(state)
+		if(board.isTerminal()) {
+			ctx.terminals++;
+			return utility(board);
+		}
+		
+		// reuse an earlier search of this position, if it was deep enough
+		long key = GameState.hash(board, minPlayer);
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		int ttCell = -1;
+		if(ctx.table != null) {
+			long entry = ctx.table.probe(key);
+			if(entry != 0) {
+				if(TranspositionTable.owner(entry) != ctx.threadId) ctx.sharedHits++;
+				ttCell = TranspositionTable.bestCell(entry);
+				if(TranspositionTable.depth(entry) >= ctx.searchDepth - depth) {
+					int score = TranspositionTable.score(entry);
+					int bound = TranspositionTable.bound(entry);
+					if(bound == TranspositionTable.EXACT) return score;
+					if(bound == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+					else beta = Math.min(beta, score);
+					if(alpha >= beta) return score;
+				}
+			}
+		}
+		
+		int v = Integer.MAX_VALUE;
+		int bestCell = -1;
+		int[] moves = ctx.moves[depth];
+		int count = generateMoves(board, minPlayer, ttCell, moves, ctx.scores[depth]);
+		
+		// no valid move, pass: the game goes on, so max can move; a pass takes no ply or move buffer
+		if(count == 0) return alphaBetaMax(board, depth, alpha, beta, minPlayer, ctx);
+		for(int i = 0; i < count; i++)
+		{
+			int cell = moves[i];
+			makeMove(board, cell, minPlayer, ctx);
+			ctx.countNode();
+			
+			int res = alphaBetaMax(board, depth + 1, alpha, beta, minPlayer, ctx);
+			unmakeMove(board, cell, minPlayer, ctx);
+			if(ctx.timedOut) return 0;
+			if(res < v) {
+				v = res;
+				bestCell = cell;
+			}
+			
+			// max will never allow this branch
+			if(v <= alpha) {
+				ctx.cutoffs++;
+				break;
+			}
+			beta = Math.min(beta, v);
+		}
+		store(ctx, key, depth, alphaOrig, betaOrig, v, bestCell);
+		return v;
+	}
+	
+	/**
+	 * Prepares ctx to search the given board: sizes its move buffers for the board's geometry,
+	 * and starts keeping its leaf scores up to date if the evaluator is incremental.
+	 * @param board - the board the search will make and unmake moves on
+	 * @param ctx - the search state
+	 */
+	private void track(Board board, SearchContext ctx)
+	{
+		ctx.reserve(board.getGeometry().getCells());
+		if(evaluator != Evaluator.INCREMENTAL) {
+			ctx.sequences = null;
+			return;
+		}
+		if(ctx.sequences == null) ctx.sequences = new IncrementalEvaluator(board);
+		else ctx.sequences.reset(board);
+	}
+	
+	/**
+	 * Makes a move on the search board, and updates the leaf scores if they are tracked.
+	 * @param board
+	 * @param cell
+	 * @param player
+	 * @param ctx
+	 */
+	private static void makeMove(Board board, int cell, char player, SearchContext ctx)
+	{
+		board.makeMove(cell, player);
+		if(ctx.sequences != null) ctx.sequences.place(cell, player);
+	}
+	
+	/**
+	 * Takes back a move made with makeMove.
+	 * @param board
+	 * @param cell
+	 * @param player
+	 * @param ctx
+	 */
+	private static void unmakeMove(Board board, int cell, char player, SearchContext ctx)
+	{
+		board.unmakeMove(cell);
+		if(ctx.sequences != null) ctx.sequences.remove(cell, player);
+	}
+	
+	/**
+	 * Records a node's result in the transposition table, with the bound implied by the search window.
+	 * @param ctx - the search state
+	 * @param key - the node's hash
+	 * @param depth - the node's depth in the tree
+	 * @param alpha - alpha the node was searched with
+	 * @param beta - beta the node was searched with
+	 * @param v - the node's value
+	 * @param bestCell - the best move found, or -1
+	 */
+	private void store(SearchContext ctx, long key, int depth, int alpha, int beta, int v, int bestCell)
+	{
+		if(ctx.table == null) return;
+		
+		int bound = v <= alpha ? TranspositionTable.UPPER : v >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		if(ctx.table.store(key, ctx.searchDepth - depth, bound, v, bestCell, ctx.threadId)) ctx.foreignOverwrites++;
+	}
+	
+	/**
+	 * Writes the successor cells of board into moves, sorted by the move orderer. Allocates nothing.
+	 * @param board
+	 * @param player - the player to move
+	 * @param firstCell - cell to search first (e.g. a transposition table move), or -1
+	 * @param moves - receives the cells
+	 * @param scores - scratch space for the orderer's scores
+	 * @return the number of moves
+	 */
+	private int generateMoves(Board board, char player, int firstCell, int[] moves, int[] scores)
+	{
+		Geometry geometry = board.getGeometry();
+		int count = 0;
+		
+		for(int word = 0; word < geometry.getWords(); word++) {
+			long valid = board.getValidMoveMask(player, word);
+			while(valid != 0L) {
+				int cell = (word << 6) | Long.numberOfTrailingZeros(valid);
+				valid &= valid - 1;
+				
+				int score = 0;
+				if(cell == firstCell) score = Integer.MAX_VALUE;
+				else if(moveOrderer != null) score = moveOrderer.score(board, geometry.rowOf(cell), geometry.colOf(cell), player);
+				
+				// insertion sort by descending score, equal scores keep generation order
+				int j = count++;
+				while(j > 0 && scores[j - 1] < score) {
+					moves[j] = moves[j - 1];
+					scores[j] = scores[j - 1];
+					j--;
+				}
+				moves[j] = cell;
+				scores[j] = score;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Sorts moves with the move orderer, then moves firstCell to the front.
+	 * @param board
+	 * @param moves
+	 * @param firstCell - cell to search first, or -1
+	 */
+	private void orderMoves(Board board, ArrayList<Move> moves, int firstCell)
+	{
+		if(moveOrderer != null) moveOrderer.order(board, moves);
+		moveToFront(board, moves, firstCell);
+	}
+	
+	/**
+	 * Stably sorts root moves by the scores earlier searches left in the table for the positions
+	 * they lead to: the previous iteration's, or the previous move's two plies shallower.
+	 * Moves without a retained score keep their order, after the others.
+	 * @param board
+	 * @param moves - this player's moves
+	 * @param table
+	 */
+	private void orderByRetainedScores(Board board, ArrayList<Move> moves, TranspositionTable table)
+	{
+		char minimizingPlayer = playerSymbol == 'X' ? 'O' : 'X';
+		int[] retained = new int[board.getGeometry().getCells()];
+		Board next = new Board(board);
+		for(Move move : moves) {
+			int cell = cellOf(board, move);
+			next.makeMove(cell, playerSymbol);
+			if(next.isTerminal()) {
+				retained[cell] = utility(next);
+			}
+			else {
+				long entry = table.probe(GameState.hash(next, minimizingPlayer));
+				retained[cell] = entry != 0 ? TranspositionTable.score(entry) : Integer.MIN_VALUE;
+			}
+			next.unmakeMove(cell);
+		}
+		moves.sort((a, b) -> Integer.compare(retained[cellOf(board, b)], retained[cellOf(board, a)]));
+	}
+	
+	/**
+	 * Moves firstCell's move to the front, keeping the others in order.
+	 * @param board
+	 * @param moves
+	 * @param firstCell - cell to search first, or -1
+	 */
+	private static void moveToFront(Board board, ArrayList<Move> moves, int firstCell)
+	{
+		if(firstCell < 0) return;
+		
+		for(int i = 0; i < moves.size(); i++) {
+			if(cellOf(board, moves.get(i)) == firstCell) {
+				moves.add(0, moves.remove(i));
+				return;
+			}
+		}
+	}
+	
+	static int cellOf(Board board, Move move)
+	{
+		return board.getGeometry().cellAt(move.getRow(), move.getCol());
+	}
+	
+	/**
+	 * Returns the transposition table, first allocating the default one if it is still due.
+	 * @return the table, or null if disabled
+	 */
+	private TranspositionTable table()
+	{
+		if(defaultTable) {
+			table = new TranspositionTable(DEFAULT_TABLE_BITS);
+			defaultTable = false;
+		}
+		return table;
+	}
+	
+	/**
+	 * Utility of a terminal board from this player's point of view.
+	 * @param board
+	 * @return
+	 */
+	private int utility(Board board)
+	{
+		char res = board.getWinner();
+		if(res == playerSymbol) return 1000;
+		if(res == 'd') return 0;
+		else return -1000;
+	}
+	
 	/**
 	 * Heuristic evaluation function (h(n) from the problem statement).
 	 * @param board
@@ -158,6 +1173,20 @@ public class MinimaxPlayer extends Player {
 	 */
 	private int evaluate(Board board)
 	{
-		return Heuristics.evaluate(board,  playerSymbol);
+		return evaluator.evaluate(board,  playerSymbol);
+	}
+	
+	/**
+	 * Heuristic evaluation of a search leaf, from the tracked counts when there are any.
+	 * Kept strictly between a loss and a win, so a guess never outranks a proven result.
+	 * @param board
+	 * @param ctx - the search state
+	 * @return
+	 */
+	private int evaluate(Board board, SearchContext ctx)
+	{
+		ctx.evaluations++;
+		int score = ctx.sequences != null ? ctx.sequences.evaluate(playerSymbol) : evaluate(board);
+		return Math.max(-999, Math.min(999, score));
 	}
 }
@@ -0,0 +1,66 @@
+package players;
+
+import java.util.ArrayList;
+
+import game.Board;
+import game.Move;
+
+/**
+ * Scores candidate moves so the search can try the most promising ones first.
+ * Higher scores are searched earlier.
+ */
+public interface MoveOrderer {
+
+	/**
+	 * Orders moves closest to the middle of the board first.
+	 */
+	MoveOrderer CENTER_FIRST = (board, row, col, player) ->
+		-(Math.abs(2 * row - (board.getGeometry().getRows() - 1)) + Math.abs(2 * col - (board.getGeometry().getCols() - 1)));
+
+	/**
+	 * Orders moves by how many pieces (of either player) already surround them,
+	 * breaking ties toward the center.
+	 */
+	MoveOrderer NEIGHBORS = (board, row, col, player) ->
+		16 * board.countNeighbors(board.getGeometry().cellAt(row, col)) + CENTER_FIRST.score(board, row, col, player);
+
+	/**
+	 * Scores a single candidate move.
+	 * @param board - the board before the move
+	 * @param row - gridspace row
+	 * @param col - gridspace column
+	 * @param player - the player making the move
+	 * @return the move's score, higher is searched first
+	 */
+	int score(Board board, int row, int col, char player);
+
+	/**
+	 * Sorts moves in place by descending score. The sort is stable, so moves with
+	 * equal scores keep the order Board.getSuccessorMoves produced.
+	 * @param board - the board before the move
+	 * @param moves - the successors to sort
+	 */
+	default void order(Board board, ArrayList<Move> moves)
+	{
+		int n = moves.size();
+		int[] scores = new int[n];
+		for(int i = 0; i < n; i++) {
+			Move m = moves.get(i);
+			scores[i] = score(board, m.getRow(), m.getCol(), m.getPlayer());
+		}
+
+		// insertion sort, successor lists are short
+		for(int i = 1; i < n; i++) {
+			Move m = moves.get(i);
+			int s = scores[i];
+			int j = i - 1;
+			while(j >= 0 && scores[j] < s) {
+				moves.set(j + 1, moves.get(j));
+				scores[j + 1] = scores[j];
+				j--;
+			}
+			moves.set(j + 1, m);
+			scores[j + 1] = s;
+		}
+	}
+}
@@ -26,6 +26,14 @@ public abstract class Player {
 	 */
 	public abstract Move makeMove(Board board);
 	
+	/**
+	 * Called before the first move of each game, so a player that keeps state
+	 * between moves can drop what it kept from the previous game.
+	 */
+	public void newGame()
+	{
+	}
+	
 	/**
 	 * Returns the player's symbol.
 	 * @return
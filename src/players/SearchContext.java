@@ -0,0 +1,96 @@
+package players;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import utils.IncrementalEvaluator;
+import utils.TranspositionTable;
+
+/**
+ * Per-thread state of one search: the horizon, the deadline and the counters.
+ * Each thread searching in parallel owns its own context, so counting never contends.
+ */
+class SearchContext {
+
+	// nodes between deadline checks, a power of two; one check costs about as much as one node
+	private static final int DEADLINE_CHECK_INTERVAL = 128;
+
+	int searchDepth;	// Horizon of the current iteration.
+	long deadline;	// System.nanoTime() at which to give up, Long.MAX_VALUE for none.
+	AtomicBoolean stop;	// Set by another thread to end this search early, null if never.
+	boolean timedOut;	// Set once the deadline passes (or stop is set), unwinds the search.
+	TranspositionTable table;	// Table this search may use, null for none.
+	int threadId;	// Tags this thread's table entries, 0 for the main search.
+	long nodes;	// Nodes generated by this context.
+	long evaluations;	// Leaves scored by the heuristic.
+	long terminals;	// Won or drawn positions reached.
+	long cutoffs;	// Move loops cut short by alpha-beta.
+	int depthReached;	// Depth of the deepest completed iteration.
+	int score;	// Score of the chosen move for the searching player, if scored.
+	boolean scored;	// The move was searched or solved, so score is known.
+	boolean bookMove;	// The move came from the opening book, nothing was searched.
+	boolean solvedMove;	// The move came from the solution database, nothing was searched.
+	boolean ponderHit;	// The move was found while pondering on the opponent's time.
+	
+	// per-ply move buffers, so generating successors allocates nothing; sized by reserve()
+	int[][] moves;
+	int[][] scores;
+	IncrementalEvaluator sequences;	// Leaf scores kept up to date by make/unmake, null to evaluate each leaf.
+
+	// table sharing statistics
+	long sharedHits;	// Table hits on entries another thread stored.
+	long foreignOverwrites;	// Stores that replaced another thread's entry.
+
+	/**
+	 * Constructor: a context with no deadline.
+	 * @param searchDepth
+	 * @param table - the table to use, or null
+	 */
+	SearchContext(int searchDepth, TranspositionTable table)
+	{
+		this.searchDepth = searchDepth;
+		this.deadline = Long.MAX_VALUE;
+		this.table = table;
+	}
+
+	/**
+	 * Makes sure the move buffers fit a search of a board with the given number of cells.
+	 * @param cells
+	 */
+	void reserve(int cells)
+	{
+		if(moves != null && moves[0].length >= cells) return;
+		moves = new int[cells + 1][cells];
+		scores = new int[cells + 1][cells];
+	}
+
+	/**
+	 * Counts a generated node, and every DEADLINE_CHECK_INTERVAL nodes checks the deadline.
+	 */
+	void countNode()
+	{
+		if((++nodes & (DEADLINE_CHECK_INTERVAL - 1)) == 0 && shouldStop()) timedOut = true;
+	}
+
+	/**
+	 * Adds another context's counters to this one's.
+	 * @param other - a context that searched part of the same move
+	 */
+	void add(SearchContext other)
+	{
+		nodes += other.nodes;
+		evaluations += other.evaluations;
+		terminals += other.terminals;
+		cutoffs += other.cutoffs;
+		sharedHits += other.sharedHits;
+		foreignOverwrites += other.foreignOverwrites;
+	}
+	
+	/**
+	 * Checks whether the deadline has passed or another thread asked this search to stop.
+	 * @return
+	 */
+	boolean shouldStop()
+	{
+		return System.nanoTime() >= deadline || (stop != null && stop.get());
+	}
+}
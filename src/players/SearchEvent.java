@@ -0,0 +1,38 @@
+package players;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one MinimaxPlayer search. Its duration is the search time.
+ */
+@Name("fourinarow.Search")
+@Label("Search")
+@Category("FourInARow")
+@Description("One move chosen by a MinimaxPlayer")
+class SearchEvent extends Event {
+	
+	@Label("Player")
+	char player;
+	
+	@Label("Move")
+	String move;
+	
+	@Label("Nodes")
+	long nodes;
+	
+	@Label("Leaf Evaluations")
+	long leafEvaluations;
+	
+	@Label("Terminal Hits")
+	long terminalHits;
+	
+	@Label("Cutoffs")
+	long cutoffs;
+	
+	@Label("Depth Reached")
+	int depthReached;
+}
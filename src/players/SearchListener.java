@@ -0,0 +1,19 @@
+package players;
+
+/**
+ * Receives the statistics of every search a MinimaxPlayer finishes.
+ * Called on the searching thread, so it should return quickly.
+ */
+public interface SearchListener {
+	
+	/**
+	 * Prints each move, its node count and its time to the console.
+	 */
+	SearchListener CONSOLE = stats -> System.out.println(stats);
+	
+	/**
+	 * Called once a search has chosen its move.
+	 * @param stats
+	 */
+	void searchCompleted(SearchStats stats);
+}
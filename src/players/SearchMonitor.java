@@ -0,0 +1,106 @@
+package players;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Search listener that keeps cumulative counters and exposes them as a JMX MBean.
+ * One monitor may listen to several players.
+ */
+public class SearchMonitor implements SearchListener, SearchMonitorMXBean {
+	// class members
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder leafEvaluations = new LongAdder();
+	private final LongAdder terminalHits = new LongAdder();
+	private final LongAdder cutoffs = new LongAdder();
+	private final LongAdder elapsedNanos = new LongAdder();
+	private volatile int lastDepthReached;
+	
+	/**
+	 * Creates a monitor, registers it with the platform MBean server and attaches it to a player.
+	 * @param player - the player to monitor
+	 * @param name - the MBean's name, registered as fourinarow:type=SearchMonitor,name=<name>
+	 * @return the monitor
+	 */
+	public static SearchMonitor register(MinimaxPlayer player, String name)
+	{
+		SearchMonitor monitor = new SearchMonitor();
+		try {
+			ObjectName objectName = new ObjectName("fourinarow:type=SearchMonitor,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, objectName);
+		}
+		catch(JMException e) {
+			throw new IllegalStateException("Could not register search monitor " + name + ".", e);
+		}
+		player.addSearchListener(monitor);
+		return monitor;
+	}
+	
+	@Override
+	public void searchCompleted(SearchStats stats)
+	{
+		searches.increment();
+		nodes.add(stats.getNodes());
+		leafEvaluations.add(stats.getLeafEvaluations());
+		terminalHits.add(stats.getTerminalHits());
+		cutoffs.add(stats.getCutoffs());
+		elapsedNanos.add(stats.getElapsedNanos());
+		lastDepthReached = stats.getDepthReached();
+	}
+	
+	public long getSearches()
+	{
+		return searches.sum();
+	}
+	
+	public long getNodes()
+	{
+		return nodes.sum();
+	}
+	
+	public long getLeafEvaluations()
+	{
+		return leafEvaluations.sum();
+	}
+	
+	public long getTerminalHits()
+	{
+		return terminalHits.sum();
+	}
+	
+	public long getCutoffs()
+	{
+		return cutoffs.sum();
+	}
+	
+	public long getElapsedNanos()
+	{
+		return elapsedNanos.sum();
+	}
+	
+	public double getNodesPerSecond()
+	{
+		long nanos = elapsedNanos.sum();
+		return nanos > 0 ? nodes.sum() * 1e9 / nanos : 0;
+	}
+	
+	public int getLastDepthReached()
+	{
+		return lastDepthReached;
+	}
+	
+	public void reset()
+	{
+		searches.reset();
+		nodes.reset();
+		leafEvaluations.reset();
+		terminalHits.reset();
+		cutoffs.reset();
+		elapsedNanos.reset();
+		lastDepthReached = 0;
+	}
+}
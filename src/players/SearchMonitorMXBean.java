@@ -0,0 +1,36 @@
+package players;
+
+/**
+ * Management interface of SearchMonitor: counters summed over every search it has seen.
+ */
+public interface SearchMonitorMXBean {
+	
+	long getSearches();
+	
+	long getNodes();
+	
+	long getLeafEvaluations();
+	
+	long getTerminalHits();
+	
+	long getCutoffs();
+	
+	long getElapsedNanos();
+	
+	/**
+	 * Returns nodes per second over all searches.
+	 * @return
+	 */
+	double getNodesPerSecond();
+	
+	/**
+	 * Returns the depth the most recent search reached.
+	 * @return
+	 */
+	int getLastDepthReached();
+	
+	/**
+	 * Sets every counter back to 0.
+	 */
+	void reset();
+}
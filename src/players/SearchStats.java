@@ -0,0 +1,168 @@
+package players;
+
+import game.Move;
+
+/**
+ * What one MinimaxPlayer search did: the move it chose and how much work it took.
+ * Counts from every thread that took part in the search are included.
+ */
+public class SearchStats {
+	// class members
+	private final char player;
+	private final Move move;
+	private final long nodes;
+	private final long leafEvaluations;
+	private final long terminalHits;
+	private final long cutoffs;
+	private final int depthReached;
+	private final int score;
+	private final boolean scored;
+	private final boolean bookMove;
+	private final boolean solvedMove;
+	private final boolean ponderHit;
+	private final long elapsedNanos;
+	
+	/**
+	 * Constructor: snapshots a finished search.
+	 * @param player - the player who searched
+	 * @param move - the chosen move
+	 * @param ctx - the search's counters
+	 * @param elapsedNanos - wall-clock time of the search
+	 */
+	SearchStats(char player, Move move, SearchContext ctx, long elapsedNanos)
+	{
+		this.player = player;
+		this.move = move;
+		this.nodes = ctx.nodes;
+		this.leafEvaluations = ctx.evaluations;
+		this.terminalHits = ctx.terminals;
+		this.cutoffs = ctx.cutoffs;
+		this.depthReached = ctx.depthReached;
+		this.score = ctx.score;
+		this.scored = ctx.scored;
+		this.bookMove = ctx.bookMove;
+		this.solvedMove = ctx.solvedMove;
+		this.ponderHit = ctx.ponderHit;
+		this.elapsedNanos = elapsedNanos;
+	}
+	
+	public char getPlayer()
+	{
+		return player;
+	}
+	
+	public Move getMove()
+	{
+		return move;
+	}
+	
+	/**
+	 * Returns the number of nodes generated.
+	 * @return
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+	
+	/**
+	 * Returns the number of leaves scored by the heuristic.
+	 * @return
+	 */
+	public long getLeafEvaluations()
+	{
+		return leafEvaluations;
+	}
+	
+	/**
+	 * Returns the number of won or drawn positions reached.
+	 * @return
+	 */
+	public long getTerminalHits()
+	{
+		return terminalHits;
+	}
+	
+	/**
+	 * Returns the number of alpha-beta cutoffs, 0 for plain minimax.
+	 * @return
+	 */
+	public long getCutoffs()
+	{
+		return cutoffs;
+	}
+	
+	/**
+	 * Returns the depth of the deepest completed search iteration.
+	 * @return
+	 */
+	public int getDepthReached()
+	{
+		return depthReached;
+	}
+	
+	/**
+	 * Returns the chosen move's score for the player who searched: the heuristic at the
+	 * search horizon, or 1000 for a forced win and -1000 for a forced loss.
+	 * @return the score, 0 if hasScore() is false
+	 */
+	public int getScore()
+	{
+		return score;
+	}
+	
+	/**
+	 * Checks whether the move has a score. Book and pondered moves have none.
+	 * @return
+	 */
+	public boolean hasScore()
+	{
+		return scored;
+	}
+	
+	/**
+	 * Checks whether the move came from the opening book instead of a search.
+	 * @return
+	 */
+	public boolean isBookMove()
+	{
+		return bookMove;
+	}
+	
+	/**
+	 * Checks whether the move came from the solution database, so it is perfect play.
+	 * @return
+	 */
+	public boolean isSolvedMove()
+	{
+		return solvedMove;
+	}
+	
+	/**
+	 * Checks whether the move was found while pondering, during the opponent's turn.
+	 * @return
+	 */
+	public boolean isPonderHit()
+	{
+		return ponderHit;
+	}
+	
+	public long getElapsedNanos()
+	{
+		return elapsedNanos;
+	}
+	
+	public double getNodesPerSecond()
+	{
+		return elapsedNanos > 0 ? nodes * 1e9 / elapsedNanos : 0;
+	}
+	
+	@Override
+	public String toString()
+	{
+		if(solvedMove) return String.format("%c made solved move %s in %.2fms", player, move, elapsedNanos / 1000000.0);
+		if(ponderHit) return String.format("%c made pondered move %s in %.2fms", player, move, elapsedNanos / 1000000.0);
+		if(bookMove) return String.format("%c made book move %s in %.2fms", player, move, elapsedNanos / 1000000.0);
+		return String.format("%c made move %s and generated %d nodes in %.2fms", player, move, nodes, elapsedNanos / 1000000.0);
+	}
+}
@@ -0,0 +1,521 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import game.Geometry;
+
+/**
+ * Serves many concurrent games over a line protocol on a local TCP port.
+ *
+ * One selector thread accepts connections, reads requests and writes replies; engine searches
+ * run on a bounded pool of worker threads. Each connection is a session with one game.
+ * Requests are ASCII lines, answered in order, one reply line each:
+ *
+ *   NEW [depth [rows cols win]]   new game from the starting pieces     OK state
+ *   PLAY row col                  play a move (1-based, as printed)      OK state
+ *   GO [millis]                   the engine plays the side to move      MOVE row col depth state
+ *   STATE                         the current game                       OK state
+ *   QUIT                          close the connection
+ *
+ * A state is the result ('-' while the game goes on, 'X', 'O' or 'd') and the position as
+ * GameState.toFen() writes it, e.g. "- 6/6/2OX2/6/6 X". Failed requests are answered
+ * with "ERR reason".
+ *
+ * Backpressure: a session has at most one search in flight, and its socket is not read
+ * until the reply is queued, so a client that pipelines requests is slowed by TCP flow
+ * control instead of by server memory. The same applies while a session's unwritten
+ * replies exceed MAX_OUTPUT. When the worker queue is full, GO is answered "BUSY" at once,
+ * and connections beyond the session limit get "BUSY" and are closed.
+ *
+ * Deadlines: each GO must be answered within its deadline, counted from when it was read.
+ * The search deepens until then and plays its deepest completed iteration; a search that
+ * waited in the queue past its deadline is answered "ERR deadline" without searching.
+ */
+public class EngineServer implements Closeable {
+	private static final int MAX_LINE = 256;	// longest request, in bytes
+	private static final int MAX_OUTPUT = 16 * 1024;	// unwritten reply bytes before a session stops being read
+
+	// class members
+	private int port;
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private int queueCapacity = 64;
+	private int maxSessions = 1024;
+	private int defaultDepth = 6;
+	private int maxDepth = 10;
+	private long deadlineMillis = 1000;
+
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private ThreadPoolExecutor pool;
+	private final ConcurrentLinkedQueue<Session> completed = new ConcurrentLinkedQueue<Session>();	// Sessions whose search finished, for the selector thread.
+	private volatile boolean running;
+	private int sessions;
+
+	// counters, written by the selector and worker threads
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder expired = new LongAdder();
+
+	/**
+	 * Constructor: a server for the given port, not yet listening.
+	 * @param port - the local port, 0 for any free one
+	 */
+	public EngineServer(int port)
+	{
+		this.port = port;
+	}
+
+	/**
+	 * Sets the number of threads that run searches.
+	 * @param workers
+	 */
+	public void setWorkers(int workers)
+	{
+		this.workers = Math.max(1, workers);
+	}
+
+	/**
+	 * Sets how many searches may wait for a worker before GO is answered "BUSY".
+	 * @param queueCapacity
+	 */
+	public void setQueueCapacity(int queueCapacity)
+	{
+		this.queueCapacity = Math.max(1, queueCapacity);
+	}
+
+	/**
+	 * Sets how many connections are served at once.
+	 * @param maxSessions
+	 */
+	public void setMaxSessions(int maxSessions)
+	{
+		this.maxSessions = maxSessions;
+	}
+
+	/**
+	 * Sets the search depth of NEW without a depth, and the deepest a client may ask for.
+	 * @param defaultDepth
+	 * @param maxDepth
+	 */
+	public void setDepth(int defaultDepth, int maxDepth)
+	{
+		this.defaultDepth = defaultDepth;
+		this.maxDepth = Math.max(defaultDepth, maxDepth);
+	}
+
+	/**
+	 * Sets the deadline of GO without one.
+	 * @param deadlineMillis
+	 */
+	public void setDeadline(long deadlineMillis)
+	{
+		this.deadlineMillis = deadlineMillis;
+	}
+
+	/**
+	 * Binds the port and starts the worker pool. Call run() to serve.
+	 * @return the port listened on
+	 * @throws IOException
+	 */
+	public int start() throws IOException
+	{
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress("localhost", port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		port = ((InetSocketAddress)serverChannel.getLocalAddress()).getPort();
+
+		// a full queue rejects the search, which is answered BUSY
+		pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity));
+		running = true;
+		return port;
+	}
+
+	/**
+	 * Runs the selector loop until close() is called.
+	 * @throws IOException
+	 */
+	public void run() throws IOException
+	{
+		try {
+			while(running) {
+				selector.select();
+
+				// hand sessions whose search finished back to this thread
+				Session done;
+				while((done = completed.poll()) != null) finishSearch(done);
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid()) continue;
+
+					if(key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Session session = (Session)key.attachment();
+					try {
+						if(key.isReadable()) read(session);
+						if(key.isValid() && key.isWritable()) write(session);
+					}
+					catch(IOException e) {
+						disconnect(session);
+					}
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+			for(SelectionKey key : selector.keys()) key.channel().close();
+			selector.close();
+		}
+	}
+
+	/**
+	 * Stops the selector loop and closes every connection. Searches in progress are abandoned.
+	 */
+	@Override
+	public void close()
+	{
+		running = false;
+		if(selector != null) selector.wakeup();
+	}
+
+	/**
+	 * Accepts a pending connection, or turns it away if the server is full.
+	 * @throws IOException
+	 */
+	private void accept() throws IOException
+	{
+		SocketChannel channel = serverChannel.accept();
+		if(channel == null) return;
+		if(sessions >= maxSessions) {
+			// a best-effort reply: the socket buffer of a fresh connection has room for it
+			channel.write(ByteBuffer.wrap("BUSY\n".getBytes(StandardCharsets.US_ASCII)));
+			channel.close();
+			rejected.increment();
+			return;
+		}
+
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+		key.attach(new Session(channel, key, MAX_LINE, defaultDepth));
+		sessions++;
+	}
+
+	/**
+	 * Reads what the client sent and handles the complete lines.
+	 * @param session
+	 * @throws IOException
+	 */
+	private void read(Session session) throws IOException
+	{
+		if(session.channel.read(session.in) < 0) {
+			disconnect(session);
+			return;
+		}
+		handleLines(session);
+		updateInterest(session);
+	}
+
+	/**
+	 * Writes queued replies, then handles lines held back while the replies piled up.
+	 * @param session
+	 * @throws IOException
+	 */
+	private void write(Session session) throws IOException
+	{
+		session.out.flip();
+		session.channel.write(session.out);
+		session.out.compact();
+
+		if(session.out.position() == 0 && session.closing) {
+			disconnect(session);
+			return;
+		}
+		handleLines(session);
+		updateInterest(session);
+	}
+
+	/**
+	 * Handles buffered request lines, in order, until a search is started, the session is
+	 * closing, its replies pile up, or no complete line is left.
+	 * @param session
+	 */
+	private void handleLines(Session session)
+	{
+		ByteBuffer in = session.in;
+		while(!session.searching && !session.closing && session.out.position() < MAX_OUTPUT) {
+			int end = -1;
+			for(int i = 0; i < in.position(); i++) {
+				if(in.get(i) == '\n') {
+					end = i;
+					break;
+				}
+			}
+			if(end < 0) {
+				if(!in.hasRemaining()) {
+					reply(session, "ERR line too long");
+					session.closing = true;
+				}
+				return;
+			}
+
+			String line = new String(in.array(), 0, end, StandardCharsets.US_ASCII).trim();
+			in.flip();
+			in.position(end + 1);
+			in.compact();
+			if(!line.isEmpty()) handle(session, line);
+		}
+	}
+
+	/**
+	 * Handles one request. GO is passed to a worker; everything else is answered at once.
+	 * @param session
+	 * @param line - the request, without its line end
+	 */
+	private void handle(Session session, String line)
+	{
+		requests.increment();
+		String[] words = line.split("\\s+");
+		try {
+			switch(words[0].toUpperCase()) {
+			case "NEW":
+				int depth = words.length > 1 ? Integer.parseInt(words[1]) : defaultDepth;
+				if(depth < 1 || depth > maxDepth) {
+					reply(session, "ERR depth must be 1 to " + maxDepth);
+					return;
+				}
+				Geometry geometry = Geometry.STANDARD;
+				if(words.length > 2) {
+					if(words.length != 5) {
+						reply(session, "ERR usage: NEW [depth [rows cols win]]");
+						return;
+					}
+					geometry = Geometry.of(Integer.parseInt(words[2]), Integer.parseInt(words[3]), Integer.parseInt(words[4]));
+				}
+				session.newGame(depth, geometry);
+				reply(session, "OK " + session.describe());
+				return;
+
+			case "PLAY":
+				if(words.length != 3) {
+					reply(session, "ERR usage: PLAY row col");
+				}
+				else if(session.isOver()) {
+					reply(session, "ERR game over");
+				}
+				else if(!session.play(Integer.parseInt(words[1]) - 1, Integer.parseInt(words[2]) - 1)) {
+					reply(session, "ERR invalid move");
+				}
+				else {
+					reply(session, "OK " + session.describe());
+				}
+				return;
+
+			case "GO":
+				long millis = words.length > 1 ? Long.parseLong(words[1]) : deadlineMillis;
+				if(session.isOver()) {
+					reply(session, "ERR game over");
+					return;
+				}
+				submit(session, System.nanoTime() + millis * 1000000L);
+				return;
+
+			case "STATE":
+				reply(session, "OK " + session.describe());
+				return;
+
+			case "QUIT":
+				session.closing = true;
+				return;
+
+			default:
+				reply(session, "ERR unknown request " + words[0]);
+			}
+		}
+		catch(IllegalArgumentException e) {
+			// bad numbers, and geometries Geometry.of refuses
+			reply(session, "ERR " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Queues a search for a worker, or answers BUSY if the queue is full.
+	 * @param session
+	 * @param deadline - System.nanoTime() by which the reply is due
+	 */
+	private void submit(Session session, long deadline)
+	{
+		session.searching = true;
+		try {
+			pool.execute(() -> {
+				String result;
+				try {
+					result = session.search(deadline);
+				}
+				catch(RuntimeException e) {
+					result = "ERR search failed";
+				}
+				session.result = result;
+				completed.add(session);
+				selector.wakeup();
+			});
+		}
+		catch(RejectedExecutionException e) {
+			session.searching = false;
+			rejected.increment();
+			reply(session, "BUSY");
+		}
+	}
+
+	/**
+	 * Queues a finished search's reply and resumes reading the session.
+	 * @param session
+	 */
+	private void finishSearch(Session session)
+	{
+		session.searching = false;
+		if(!session.channel.isOpen()) return;
+
+		if(session.result.equals("ERR deadline")) expired.increment();
+		else searches.increment();
+		reply(session, session.result);
+		handleLines(session);
+		updateInterest(session);
+	}
+
+	/**
+	 * Queues a reply line.
+	 * @param session
+	 * @param line
+	 */
+	private void reply(Session session, String line)
+	{
+		byte[] bytes = (line + "\n").getBytes(StandardCharsets.US_ASCII);
+		if(session.out.remaining() < bytes.length) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * session.out.capacity(), session.out.position() + bytes.length));
+			session.out.flip();
+			bigger.put(session.out);
+			session.out = bigger;
+		}
+		session.out.put(bytes);
+	}
+
+	/**
+	 * Reads a session's socket only while it may start another request,
+	 * and waits to write only while replies are queued. A closing session with
+	 * nothing left to write is disconnected.
+	 * @param session
+	 */
+	private void updateInterest(Session session)
+	{
+		if(!session.key.isValid()) return;
+		if(session.closing && session.out.position() == 0) {
+			disconnect(session);
+			return;
+		}
+		int ops = 0;
+		if(!session.searching && !session.closing && session.out.position() < MAX_OUTPUT) ops |= SelectionKey.OP_READ;
+		if(session.out.position() > 0) ops |= SelectionKey.OP_WRITE;
+		session.key.interestOps(ops);
+	}
+
+	/**
+	 * Closes a session's connection. A search still running finishes, and its reply is dropped.
+	 * @param session
+	 */
+	private void disconnect(Session session)
+	{
+		if(!session.channel.isOpen()) return;
+		try {
+			session.channel.close();
+		}
+		catch(IOException e) {
+			// the connection is gone either way
+		}
+		sessions--;
+	}
+
+	/**
+	 * Returns the number of requests handled.
+	 * @return
+	 */
+	public long getRequests()
+	{
+		return requests.sum();
+	}
+
+	/**
+	 * Returns the number of searches answered with a move.
+	 * @return
+	 */
+	public long getSearches()
+	{
+		return searches.sum();
+	}
+
+	/**
+	 * Returns the number of searches and connections turned away with "BUSY".
+	 * @return
+	 */
+	public long getRejected()
+	{
+		return rejected.sum();
+	}
+
+	/**
+	 * Returns the number of searches whose deadline passed before a worker took them.
+	 * @return
+	 */
+	public long getExpired()
+	{
+		return expired.sum();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d requests, %d searches, %d busy, %d expired", getRequests(), getSearches(), getRejected(), getExpired());
+	}
+
+	/**
+	 * Serves games until the process is stopped.
+	 * Usage: java server.EngineServer [port] [workers] [queue] [deadline millis]
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		EngineServer server = new EngineServer(args.length > 0 ? Integer.parseInt(args[0]) : 4000);
+		if(args.length > 1) server.setWorkers(Integer.parseInt(args[1]));
+		if(args.length > 2) server.setQueueCapacity(Integer.parseInt(args[2]));
+		if(args.length > 3) server.setDeadline(Long.parseLong(args[3]));
+
+		int port = server.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(server)));
+		System.out.println("Listening on localhost:" + port);
+		server.run();
+	}
+}
@@ -0,0 +1,288 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates load on an EngineServer: each connection plays engine-vs-engine games with GO
+ * requests, back to back, for a fixed time. Reports throughput and the latency
+ * percentiles of GO, counting BUSY and expired replies separately.
+ */
+public class LoadClient {
+
+	// class members
+	private String host = "localhost";
+	private int port;
+	private int connections = 16;
+	private long durationMillis = 10000;
+	private int depth = 6;
+	private long deadlineMillis = 1000;
+
+	/**
+	 * Constructor: a load generator for the server on the given local port.
+	 * @param port
+	 */
+	public LoadClient(int port)
+	{
+		this.port = port;
+	}
+
+	public void setHost(String host)
+	{
+		this.host = host;
+	}
+
+	/**
+	 * Sets how many connections play at once, each on its own thread.
+	 * @param connections
+	 */
+	public void setConnections(int connections)
+	{
+		this.connections = Math.max(1, connections);
+	}
+
+	/**
+	 * Sets how long to generate load.
+	 * @param durationMillis
+	 */
+	public void setDuration(long durationMillis)
+	{
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * Sets the search depth each game asks for.
+	 * @param depth
+	 */
+	public void setDepth(int depth)
+	{
+		this.depth = depth;
+	}
+
+	/**
+	 * Sets the deadline sent with each GO.
+	 * @param deadlineMillis
+	 */
+	public void setDeadline(long deadlineMillis)
+	{
+		this.deadlineMillis = deadlineMillis;
+	}
+
+	/**
+	 * Runs every connection for the set duration.
+	 * @return the combined results
+	 * @throws IOException if a connection fails
+	 */
+	public Result run() throws IOException
+	{
+		long startTime = System.nanoTime();
+		long endTime = startTime + durationMillis * 1000000L;
+
+		ExecutorService pool = Executors.newFixedThreadPool(connections);
+		ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for(int i = 0; i < connections; i++) futures.add(pool.submit(() -> play(endTime)));
+
+		Result result = new Result();
+		try {
+			for(Future<Result> future : futures) result.add(future.get());
+		}
+		catch(InterruptedException e) {
+			throw new IOException("Interrupted.", e);
+		}
+		catch(ExecutionException e) {
+			throw new IOException("Connection failed.", e.getCause());
+		}
+		finally {
+			pool.shutdown();
+		}
+		result.elapsedNanos = System.nanoTime() - startTime;
+		return result;
+	}
+
+	/**
+	 * Plays games on one connection until endTime.
+	 * @param endTime - System.nanoTime() at which to stop starting requests
+	 * @return this connection's results
+	 * @throws IOException
+	 */
+	private Result play(long endTime) throws IOException
+	{
+		Result result = new Result();
+		try(Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+
+			boolean over = true;
+			while(System.nanoTime() < endTime) {
+				if(over) {
+					String reply = request(reader, writer, "NEW " + depth);
+					if(!reply.startsWith("OK ")) throw new IOException("Unexpected reply: " + reply);
+					over = false;
+				}
+
+				long sent = System.nanoTime();
+				String reply = request(reader, writer, "GO " + deadlineMillis);
+				long latency = System.nanoTime() - sent;
+
+				if(reply.startsWith("MOVE ")) {
+					result.addLatency(latency);
+					// the state starts with the result, '-' while the game goes on
+					String[] words = reply.split(" ");
+					if(!words[4].equals("-")) {
+						over = true;
+						result.games++;
+					}
+				}
+				else if(reply.equals("BUSY")) {
+					// back off briefly rather than adding to the load that made the server busy
+					result.busy++;
+					try {
+						Thread.sleep(1);
+					}
+					catch(InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+				}
+				else if(reply.equals("ERR deadline")) {
+					result.expired++;
+				}
+				else {
+					throw new IOException("Unexpected reply: " + reply);
+				}
+			}
+			writer.write("QUIT\n");
+			writer.flush();
+		}
+		return result;
+	}
+
+	/**
+	 * Sends a request and waits for its reply.
+	 * @param reader
+	 * @param writer
+	 * @param line
+	 * @return the reply
+	 * @throws IOException if the server closed the connection
+	 */
+	private static String request(BufferedReader reader, Writer writer, String line) throws IOException
+	{
+		writer.write(line + "\n");
+		writer.flush();
+		String reply = reader.readLine();
+		if(reply == null) throw new EOFException("The server closed the connection.");
+		return reply;
+	}
+
+	/**
+	 * Totals of a load run.
+	 */
+	public static class Result {
+		private long[] latencies = new long[1024];	// nanoseconds of each answered GO
+		private int count;
+		private long busy;
+		private long expired;
+		private long games;
+		private long elapsedNanos;
+
+		private void addLatency(long nanos)
+		{
+			if(count == latencies.length) latencies = Arrays.copyOf(latencies, 2 * count);
+			latencies[count++] = nanos;
+		}
+
+		private void add(Result other)
+		{
+			for(int i = 0; i < other.count; i++) addLatency(other.latencies[i]);
+			busy += other.busy;
+			expired += other.expired;
+			games += other.games;
+		}
+
+		/**
+		 * Returns the number of GO requests answered with a move.
+		 * @return
+		 */
+		public int getMoves()
+		{
+			return count;
+		}
+
+		public long getBusy()
+		{
+			return busy;
+		}
+
+		public long getExpired()
+		{
+			return expired;
+		}
+
+		public long getGames()
+		{
+			return games;
+		}
+
+		/**
+		 * Returns the answered moves per second.
+		 * @return
+		 */
+		public double getThroughput()
+		{
+			return count * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * Returns a percentile of the latency of answered moves, in milliseconds.
+		 * @param percentile - 0 to 100
+		 * @return
+		 */
+		public double getLatencyMillis(double percentile)
+		{
+			if(count == 0) return 0;
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			int index = (int)Math.ceil(percentile / 100 * count) - 1;
+			return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%d moves, %d games in %.2fs: %.1f moves/s%n", count, games, elapsedNanos / 1e9, getThroughput())
+					+ String.format("Latency p50 %.2fms, p99 %.2fms, max %.2fms%n", getLatencyMillis(50), getLatencyMillis(99), getLatencyMillis(100))
+					+ String.format("%d busy, %d expired", busy, expired);
+		}
+	}
+
+	/**
+	 * Runs a load test against a local server.
+	 * Usage: java server.LoadClient [port] [connections] [seconds] [depth] [deadline millis]
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		LoadClient client = new LoadClient(args.length > 0 ? Integer.parseInt(args[0]) : 4000);
+		if(args.length > 1) client.setConnections(Integer.parseInt(args[1]));
+		if(args.length > 2) client.setDuration(Long.parseLong(args[2]) * 1000);
+		if(args.length > 3) client.setDepth(Integer.parseInt(args[3]));
+		if(args.length > 4) client.setDeadline(Long.parseLong(args[4]));
+
+		System.out.println(client.connections + " connections, depth " + client.depth + ", deadline " + client.deadlineMillis + "ms");
+		System.out.println(client.run());
+	}
+}
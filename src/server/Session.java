@@ -0,0 +1,167 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import game.Board;
+import game.GameState;
+import game.Geometry;
+import game.Move;
+import players.MinimaxPlayer;
+import players.SearchStats;
+import utils.TranspositionTable;
+
+/**
+ * One client connection: its socket buffers, its game and the engines that play it.
+ *
+ * The selector thread owns a session, except while one of its searches runs on a worker.
+ * Until the worker hands the session back through the server's completion queue, the
+ * selector thread neither reads its socket nor touches its game.
+ */
+class Session {
+	// each engine's transposition table, 2^16 slots (1 MB)
+	private static final int TABLE_BITS = 16;
+
+	// class members
+	final SocketChannel channel;
+	final SelectionKey key;
+	final ByteBuffer in;	// Received bytes not yet parsed into lines, in write mode.
+	ByteBuffer out = ByteBuffer.allocate(256);	// Replies not yet written, in write mode.
+	boolean searching;	// A search is queued or running; the session belongs to the worker.
+	boolean closing;	// Close once the replies already queued are written.
+	String result;	// The finished search's reply, set by the worker.
+
+	private GameState state;
+	private int depth;
+	private MinimaxPlayer engineX;
+	private MinimaxPlayer engineO;
+
+	/**
+	 * Constructor: a connection with a new game on the standard board.
+	 * @param channel - the connected, non-blocking socket
+	 * @param key - the channel's registration with the server's selector
+	 * @param maxLine - the longest request line accepted, in bytes
+	 * @param depth - the engines' search depth
+	 */
+	Session(SocketChannel channel, SelectionKey key, int maxLine, int depth)
+	{
+		this.channel = channel;
+		this.key = key;
+		this.in = ByteBuffer.allocate(maxLine);
+		newGame(depth, Geometry.STANDARD);
+	}
+
+	/**
+	 * Starts a new game from the two starting pieces, as FourInARow places them.
+	 * @param depth - the engines' search depth
+	 * @param geometry - the board's shape
+	 */
+	void newGame(int depth, Geometry geometry)
+	{
+		Board board = new Board(geometry);
+		int row = geometry.getRows() / 2;
+		int col = Math.max(1, geometry.getCols() / 2);
+		board.placePiece(row, col, 'X');
+		board.placePiece(row, col - 1, 'O');
+		state = new GameState(board, 'X');
+
+		// engines are only built for sessions that ask for a search, and kept across games of the same depth
+		if(depth != this.depth) {
+			engineX = null;
+			engineO = null;
+			this.depth = depth;
+		}
+		if(engineX != null) engineX.newGame();
+		if(engineO != null) engineO.newGame();
+	}
+
+	/**
+	 * Plays a move for the side to move.
+	 * @param row
+	 * @param col
+	 * @return false if the move is not valid
+	 */
+	boolean play(int row, int col)
+	{
+		char player = state.getCurrentPlayer();
+		if(!state.getBoard().placePiece(row, col, player)) return false;
+		advance(player);
+		return true;
+	}
+
+	/**
+	 * Searches for the side to move and plays the move found. Runs on a worker thread.
+	 * The search deepens until the deadline and plays the deepest completed iteration's move.
+	 * @param deadline - System.nanoTime() by which the reply is due
+	 * @return the reply: the move, the depth reached and the new state, or an error if
+	 * the deadline passed before the search could start
+	 */
+	String search(long deadline)
+	{
+		long remainingMillis = (deadline - System.nanoTime()) / 1000000;
+		if(remainingMillis < 1) return "ERR deadline";
+
+		char player = state.getCurrentPlayer();
+		MinimaxPlayer engine = engine(player);
+		engine.setTimeBudget(remainingMillis);
+		SearchStats stats = engine.search(state.getBoard());
+
+		Move move = stats.getMove();
+		state.getBoard().placePiece(move.getRow(), move.getCol(), player);
+		advance(player);
+		return "MOVE " + (move.getRow() + 1) + " " + (move.getCol() + 1) + " " + stats.getDepthReached() + " " + describe();
+	}
+
+	/**
+	 * Checks whether the game has ended.
+	 * @return
+	 */
+	boolean isOver()
+	{
+		return state.getBoard().isTerminal();
+	}
+
+	/**
+	 * Returns the game as the protocol prints it: the result ('-' while the game goes on,
+	 * 'X', 'O' or 'd'), then the position as GameState.toFen() writes it.
+	 * @return
+	 */
+	String describe()
+	{
+		char winner = state.getBoard().getWinner();
+		StringBuilder sb = new StringBuilder();
+		sb.append(winner == '\0' ? '-' : winner).append(' ');
+		state.appendFen(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Passes the turn after player's move; a player with no valid move passes.
+	 * @param player - the player who just moved
+	 */
+	private void advance(char player)
+	{
+		Board board = state.getBoard();
+		char next = player == 'X' ? 'O' : 'X';
+		if(!board.isTerminal() && !board.hasValidMove(next)) next = player;
+		state = new GameState(board, next);
+	}
+
+	/**
+	 * Returns the engine playing player's side, building it on first use.
+	 * Each engine has its own transposition table: scores are stored from the searcher's point of view.
+	 * @param player
+	 * @return
+	 */
+	private MinimaxPlayer engine(char player)
+	{
+		if(engineX == null) {
+			engineX = new MinimaxPlayer('X', depth);
+			engineO = new MinimaxPlayer('O', depth);
+			engineX.setTranspositionTable(new TranspositionTable(TABLE_BITS));
+			engineO.setTranspositionTable(new TranspositionTable(TABLE_BITS));
+		}
+		return player == 'X' ? engineX : engineO;
+	}
+}
@@ -1,7 +1,8 @@
 package utils;
 
 /**
- * Stores game constants.
+ * Stores game constants: the standard board (Geometry.STANDARD).
+ * Other shapes are made with Geometry.of and passed to Board or FourInARow.
  */
 public class Constants {
 	public static final int ROWS = 5;
@@ -0,0 +1,33 @@
+package utils;
+
+import game.Board;
+
+/**
+ * Heuristic evaluation of a non-terminal board, from one player's point of view.
+ */
+public interface Evaluator {
+
+	/**
+	 * Scores each sequence on the board with Heuristics.evaluate.
+	 */
+	Evaluator SEQUENCES = Heuristics::evaluate;
+
+	/**
+	 * Same scores as SEQUENCES, looked up from precomputed line-pattern tables.
+	 */
+	Evaluator PATTERNS = new PatternEvaluator();
+
+	/**
+	 * Same scores as SEQUENCES. MinimaxPlayer keeps them up to date with an IncrementalEvaluator
+	 * as it makes and unmakes moves; evaluated on its own it works like PATTERNS.
+	 */
+	Evaluator INCREMENTAL = new PatternEvaluator();
+
+	/**
+	 * Evaluates the board.
+	 * @param board
+	 * @param player - the player to score for
+	 * @return higher is better for player
+	 */
+	int evaluate(Board board, char player);
+}
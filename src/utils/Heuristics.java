@@ -2,6 +2,7 @@ package utils;
 
 import java.util.HashSet;
 import game.Board;
+import game.Geometry;
 
 /**
  * Calculates the heuristic score of the board at the cut-off nodes.
@@ -15,21 +16,32 @@ public class Heuristics {
 	 * @return
 	 */
 	public static int evaluate(Board board, char player)
+	{	
+		return evaluate(new SequenceHistogram(board), player);
+	}
+	
+	/**
+	 * Heuristic function, computed from an already scanned board.
+	 * @param sequences - the board's sequence histogram
+	 * @param player
+	 * @return
+	 */
+	public static int evaluate(SequenceHistogram sequences, char player)
 	{	
 		// calculate points for this player
 		int thisPlayerPoints = 
-				200 * countNSidesOpen_MInARow(board, player, 2, 3) +
-				150 * countNSidesOpen_MInARow(board, player, 1, 3) +
-				20 * countNSidesOpen_MInARow(board, player, 2, 2) +
-				5 * countNSidesOpen_MInARow(board, player, 1, 2);
+				200 * sequences.count(player, 2, 3) +
+				150 * sequences.count(player, 1, 3) +
+				20 * sequences.count(player, 2, 2) +
+				5 * sequences.count(player, 1, 2);
 		
 		// calculate points for other player
 		char otherPlayer = player == 'X' ? 'O' : 'X';
 		int otherPlayerPoints = 
-				80 * countNSidesOpen_MInARow(board, otherPlayer, 2, 3) +
-				40 * countNSidesOpen_MInARow(board, otherPlayer, 1, 3) +
-				15 * countNSidesOpen_MInARow(board, otherPlayer, 2, 2) +
-				2 * countNSidesOpen_MInARow(board, otherPlayer, 1, 2);
+				80 * sequences.count(otherPlayer, 2, 3) +
+				40 * sequences.count(otherPlayer, 1, 3) +
+				15 * sequences.count(otherPlayer, 2, 2) +
+				2 * sequences.count(otherPlayer, 1, 2);
 		
 		return thisPlayerPoints - otherPlayerPoints;
 	}
@@ -44,19 +56,7 @@ public class Heuristics {
 	 */
 	public static int countNSidesOpen_MInARow(Board board, char player, int n, int m)
 	{
-		// we will keep track of all pieces in a row to prevent duplicates
-		HashSet<PieceSequence> sequences = new HashSet<PieceSequence>();
-		
-		// add all sequences on the board for this player
-		sequences.addAll(getAllSequences(board, player));
-		
-		// narrow down to n sides open
-		sequences.removeIf(sequence -> countSidesOpen(board, sequence) != n);
-		
-		// narrow down to m pieces long
-		sequences.removeIf(sequence -> sequence.length != m);
-		
-		return sequences.size();
+		return new SequenceHistogram(board).count(player, n, m);
 	}
 	
 	/**
@@ -67,15 +67,15 @@ public class Heuristics {
 	 */
 	public static HashSet<PieceSequence> getAllSequences(Board boardObj, char player)
 	{
-		char[][] board = boardObj.getBoardState();
 		HashSet<PieceSequence> sequences = new HashSet<PieceSequence>();
+		Geometry geometry = boardObj.getGeometry();
 		
 		// loop through every position on the board
-		for(int row = 0; row < Constants.ROWS; ++row) {
-			for(int col = 0; col < Constants.COLS; ++col) {
+		for(int row = 0; row < geometry.getRows(); ++row) {
+			for(int col = 0; col < geometry.getCols(); ++col) {
 				
 				// check if this posn belongs to this player
-				if(board[row][col] == player)
+				if(boardObj.getPiece(row, col) == player)
 				{
 					// look for the longest sequence in all four directions:
 					// 1. Horizontal
@@ -149,20 +149,39 @@ public class Heuristics {
 	{
 		// check for valid input
 		if(boardObj == null) return null;
-		char[][] board = boardObj.getBoardState();
-		if(board[startRow][startCol] != player) return null;
+		if(boardObj.getPiece(startRow, startCol) != player) return null;
+		
+		// the geometry's table of next cells along this direction, or null for a direction it has none for
+		Geometry geometry = boardObj.getGeometry();
+		int[] step = null;
+		for(int d = 0; d < Geometry.DIRECTIONS.length; d++) {
+			if(Geometry.DIRECTIONS[d][0] == rowDir && Geometry.DIRECTIONS[d][1] == colDir) step = geometry.getNext(d);
+			if(Geometry.DIRECTIONS[d][0] == -rowDir && Geometry.DIRECTIONS[d][1] == -colDir) step = geometry.getPrevious(d);
+		}
 		
 		// starting values
+		int cell = geometry.cellAt(startRow, startCol);
 		int row = startRow;
 		int col = startCol;
 		int length = 1;
 		
 		// find the longest sequence in the given direction
-		while(Board.isInBounds(row + rowDir, col + colDir) && board[row + rowDir][col + colDir] == player)
-		{
-			row += rowDir;
-			col += colDir;
-			length++;
+		if(step != null) {
+			while(step[cell] >= 0 && boardObj.getPiece(step[cell]) == player)
+			{
+				cell = step[cell];
+				length++;
+			}
+			row = geometry.rowOf(cell);
+			col = geometry.colOf(cell);
+		}
+		else {
+			while(boardObj.isInBounds(row + rowDir, col + colDir) && boardObj.getPiece(row + rowDir, col + colDir) == player)
+			{
+				row += rowDir;
+				col += colDir;
+				length++;
+			}
 		}
 		
 		// only add sequences of length > 1
@@ -179,23 +198,23 @@ public class Heuristics {
 	public static int countSidesOpen(Board boardObj, PieceSequence seq) 
 	{
 		int numSidesOpen = 0;
-		char[][] board = boardObj.getBoardState();
+		char start = boardObj.getPiece(seq.start_row, seq.start_col);
+		char end = boardObj.getPiece(seq.end_row, seq.end_col);
 		
 		// (loosely) check for invalid sequence
 		// previous functions should already ensure sequence is valid
-		if(board[seq.start_row][seq.start_col] == '\0' || board[seq.end_row][seq.end_col] == '\0' ||
-		   board[seq.start_row][seq.start_col] != board[seq.end_row][seq.end_col]) {
+		if(start == '\0' || end == '\0' || start != end) {
 			return -1;
 		}
 		
 		// check at start point
-		if(Board.isInBounds(seq.start_row - seq.rowDirection, seq.start_col - seq.colDirection) &&
-				board[seq.start_row - seq.rowDirection][seq.start_col - seq.colDirection] == '\0')
+		if(boardObj.isInBounds(seq.start_row - seq.rowDirection, seq.start_col - seq.colDirection) &&
+				boardObj.getPiece(seq.start_row - seq.rowDirection, seq.start_col - seq.colDirection) == '\0')
 			numSidesOpen++;
 		
 		// check at end point
-		if(Board.isInBounds(seq.end_row + seq.rowDirection, seq.end_col + seq.colDirection) &&
-				board[seq.end_row + seq.rowDirection][seq.end_col + seq.colDirection] == '\0')
+		if(boardObj.isInBounds(seq.end_row + seq.rowDirection, seq.end_col + seq.colDirection) &&
+				boardObj.getPiece(seq.end_row + seq.rowDirection, seq.end_col + seq.colDirection) == '\0')
 			numSidesOpen++;
 		
 		return numSidesOpen;
@@ -0,0 +1,224 @@
+package utils;
+
+import game.Board;
+import game.Geometry;
+
+/**
+ * Keeps Heuristics.evaluate's sequence counts up to date as pieces are placed and removed,
+ * so a search can score a leaf without scanning the board.
+ *
+ * The counts are the (player, sides open, length) buckets evaluate weighs: lengths 2 and 3,
+ * with 1 or 2 sides open. Each maximal line's share of them depends only on its occupancy
+ * pattern (see PatternEvaluator), so placing or removing a piece only re-counts the lines
+ * through that cell, at most four.
+ *
+ * All eight buckets are packed 8 bits each into one long. A board has far fewer than 256
+ * sequences of any one kind, so per-line counts can be added and subtracted as plain longs.
+ *
+ * The lines come from the board's Geometry; reset binds the evaluator to a board's shape.
+ */
+public class IncrementalEvaluator {
+
+	// for each line length up to PatternEvaluator.TABLE_LENGTH, the packed counts of a line by pattern index (xMask | oMask << length)
+	private static final long[][] COUNTS = new long[PatternEvaluator.TABLE_LENGTH + 1][];
+	private static volatile int builtLength;	// tables exist for every length up to this
+
+	// class members
+	private Geometry geometry;	// shape of the tracked board, null before the first reset
+	private int[][] lines;	// the geometry's lines
+	private long[] xLines;	// X's pieces on each line, bit i for the line's i-th cell
+	private long[] oLines;	// O's pieces on each line
+	private long counts;
+
+	/**
+	 * Constructor: the counts of an empty board of the standard geometry.
+	 */
+	public IncrementalEvaluator()
+	{
+		reset(new Board());
+	}
+
+	/**
+	 * Constructor: the counts of the given board.
+	 * @param board
+	 */
+	public IncrementalEvaluator(Board board)
+	{
+		reset(board);
+	}
+
+	/**
+	 * Recomputes every line from the given board, which may have a different shape than the last.
+	 * @param board
+	 */
+	public void reset(Board board)
+	{
+		if(geometry != board.getGeometry()) {
+			geometry = board.getGeometry();
+			lines = geometry.getLines();
+			xLines = new long[lines.length];
+			oLines = new long[lines.length];
+			int needed = Math.min(geometry.getMaxLineLength(), PatternEvaluator.TABLE_LENGTH);
+			if(needed > builtLength) buildTables(needed);
+		}
+
+		long xLow = board.getPlayerBits('X', 0);
+		long xHigh = board.getPlayerBits('X', 1);
+		long oLow = board.getPlayerBits('O', 0);
+		long oHigh = board.getPlayerBits('O', 1);
+
+		counts = 0L;
+		for(int l = 0; l < lines.length; l++) {
+			int[] line = lines[l];
+			long x = 0;
+			long o = 0;
+			for(int i = 0; i < line.length; i++) {
+				int c = line[i];
+				x |= ((c < 64 ? xLow : xHigh) >>> c & 1L) << i;
+				o |= ((c < 64 ? oLow : oHigh) >>> c & 1L) << i;
+			}
+			xLines[l] = x;
+			oLines[l] = o;
+			counts += lineCounts(x, o, line.length);
+		}
+	}
+
+	/**
+	 * Updates the counts for a piece placed on an empty cell.
+	 * @param cell - row * cols + col
+	 * @param player - 'X' or 'O'
+	 */
+	public void place(int cell, char player)
+	{
+		int[] through = geometry.getCellLines(cell);
+		int[] bits = geometry.getCellLineBits(cell);
+		long[] own = player == 'X' ? xLines : oLines;
+		for(int k = 0; k < through.length; k++) {
+			int l = through[k];
+			int length = lines[l].length;
+			counts -= lineCounts(xLines[l], oLines[l], length);
+			own[l] |= 1L << bits[k];
+			counts += lineCounts(xLines[l], oLines[l], length);
+		}
+	}
+
+	/**
+	 * Updates the counts for a piece taken back off its cell.
+	 * @param cell - row * cols + col
+	 * @param player - the player whose piece it was
+	 */
+	public void remove(int cell, char player)
+	{
+		int[] through = geometry.getCellLines(cell);
+		int[] bits = geometry.getCellLineBits(cell);
+		long[] own = player == 'X' ? xLines : oLines;
+		for(int k = 0; k < through.length; k++) {
+			int l = through[k];
+			int length = lines[l].length;
+			counts -= lineCounts(xLines[l], oLines[l], length);
+			own[l] &= ~(1L << bits[k]);
+			counts += lineCounts(xLines[l], oLines[l], length);
+		}
+	}
+
+	/**
+	 * Returns the number of sequences with n sides open and of length m.
+	 * Only the buckets evaluate uses are kept: n of 1 or 2, m of 2 or 3.
+	 * @param player - 'X' or 'O'
+	 * @param n - number of sides open
+	 * @param m - length of sequence
+	 * @return
+	 */
+	public int count(char player, int n, int m)
+	{
+		if(n < 1 || n > 2 || m < 2 || m > 3) return 0;
+		return (int)(counts >>> shift(player == 'X' ? 0 : 1, n, m)) & 0xFF;
+	}
+
+	/**
+	 * Heuristic function, same result as Heuristics.evaluate on the tracked board.
+	 * @param player
+	 * @return
+	 */
+	public int evaluate(char player)
+	{
+		// calculate points for this player
+		int thisPlayerPoints = 
+				200 * count(player, 2, 3) +
+				150 * count(player, 1, 3) +
+				20 * count(player, 2, 2) +
+				5 * count(player, 1, 2);
+		
+		// calculate points for other player
+		char otherPlayer = player == 'X' ? 'O' : 'X';
+		int otherPlayerPoints = 
+				80 * count(otherPlayer, 2, 3) +
+				40 * count(otherPlayer, 1, 3) +
+				15 * count(otherPlayer, 2, 2) +
+				2 * count(otherPlayer, 1, 2);
+		
+		return thisPlayerPoints - otherPlayerPoints;
+	}
+
+	/**
+	 * Returns the packed counts of one line, from the table if the line is short enough to have one.
+	 * @param x - X's pieces on the line
+	 * @param o - O's pieces on the line
+	 * @param length - length of the line
+	 * @return
+	 */
+	private static long lineCounts(long x, long o, int length)
+	{
+		if(length <= PatternEvaluator.TABLE_LENGTH) return COUNTS[length][(int)(x | (o << length))];
+		return countLine(x, o, length);
+	}
+
+	/**
+	 * Counts the sequences on one line, for every bucket.
+	 * @param x - X's pieces on the line
+	 * @param o - O's pieces on the line
+	 * @param length - length of the line
+	 * @return the packed counts
+	 */
+	private static long countLine(long x, long o, int length)
+	{
+		long packed = 0L;
+		for(int m = 2; m <= 3; m++) {
+			for(int n = 1; n <= 2; n++) {
+				packed += (long)PatternEvaluator.count(x, o, length, n, m) << shift(0, n, m);
+				packed += (long)PatternEvaluator.count(o, x, length, n, m) << shift(1, n, m);
+			}
+		}
+		return packed;
+	}
+
+	/**
+	 * Builds the count tables of every line length up to maxLength that has none yet.
+	 * @param maxLength - at most PatternEvaluator.TABLE_LENGTH
+	 */
+	private static synchronized void buildTables(int maxLength)
+	{
+		for(int length = Math.max(2, builtLength + 1); length <= maxLength; length++) {
+			COUNTS[length] = new long[1 << (2 * length)];
+			for(int x = 0; x < (1 << length); x++) {
+				for(int o = 0; o < (1 << length); o++) {
+					if((x & o) != 0) continue;
+					COUNTS[length][x | (o << length)] = countLine(x, o, length);
+				}
+			}
+		}
+		if(maxLength > builtLength) builtLength = maxLength;
+	}
+
+	/**
+	 * Bit offset of one bucket within the packed counts.
+	 * @param p - player index, 0 for X and 1 for O
+	 * @param n - sides open, 1 or 2
+	 * @param m - length, 2 or 3
+	 * @return
+	 */
+	private static int shift(int p, int n, int m)
+	{
+		return 8 * (p * 4 + (m - 2) * 2 + (n - 1));
+	}
+}
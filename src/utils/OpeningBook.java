@@ -0,0 +1,137 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import game.Geometry;
+
+/**
+ * Read-only table of precomputed moves, memory-mapped from a file built offline.
+ *
+ * File layout (big-endian):
+ *   header   magic "FBK2", rows, columns, win length, search depth, entry count (6 ints)
+ *   entries  position hash (long) then move cell (int), sorted by hash
+ *
+ * Positions are keyed by GameState.hash, which includes the side to move, so a book holds
+ * moves for both players. A book only covers boards of the geometry it was built for.
+ * Lookups binary-search the mapped file and allocate nothing.
+ */
+public class OpeningBook {
+	private static final int MAGIC = 0x46424B32;	// "FBK2"
+	private static final int HEADER_BYTES = 6 * 4;
+	private static final int ENTRY_BYTES = 8 + 4;
+
+	// class members
+	private final MappedByteBuffer buffer;
+	private final Geometry geometry;
+	private final int depth;
+	private final int size;
+
+	/**
+	 * Constructor: maps a book file.
+	 * @param buffer - the mapped file
+	 */
+	private OpeningBook(MappedByteBuffer buffer)
+	{
+		if(buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("Not an opening book file.");
+		}
+		this.buffer = buffer;
+		this.geometry = Geometry.of(buffer.getInt(4), buffer.getInt(8), buffer.getInt(12));
+		this.depth = buffer.getInt(16);
+		this.size = buffer.getInt(20);
+		if(buffer.capacity() < HEADER_BYTES + (long)size * ENTRY_BYTES) {
+			throw new IllegalArgumentException("Opening book file is truncated.");
+		}
+	}
+
+	/**
+	 * Maps a book file read-only.
+	 * @param path
+	 * @return the book
+	 * @throws IOException if the file cannot be read
+	 */
+	public static OpeningBook open(Path path) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Looks up a position.
+	 * @param key - the position's hash, GameState.hash(board, player to move)
+	 * @return the book move's cell (row * cols + col), or -1 if the position is not in the book
+	 */
+	public int probe(long key)
+	{
+		int low = 0;
+		int high = size - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int offset = HEADER_BYTES + mid * ENTRY_BYTES;
+			long k = buffer.getLong(offset);
+			if(k < key) low = mid + 1;
+			else if(k > key) high = mid - 1;
+			else return buffer.getInt(offset + 8);
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the geometry of the boards the book was built for.
+	 * @return
+	 */
+	public Geometry getGeometry()
+	{
+		return geometry;
+	}
+
+	/**
+	 * Returns the depth the book's moves were searched to.
+	 * @return
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Returns the number of positions in the book.
+	 * @return
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Writes a book file.
+	 * @param path - the file to create or replace
+	 * @param geometry - the geometry of the book's positions
+	 * @param depth - the depth the moves were searched to
+	 * @param keys - position hashes, distinct
+	 * @param cells - the move cell for each key
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path path, Geometry geometry, int depth, long[] keys, int[] cells) throws IOException
+	{
+		// sort entries by key, keeping each key's cell
+		Integer[] order = new Integer[keys.length];
+		for(int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+		ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + keys.length * ENTRY_BYTES);
+		bytes.putInt(MAGIC).putInt(geometry.getRows()).putInt(geometry.getCols()).putInt(geometry.getWinLength());
+		bytes.putInt(depth).putInt(keys.length);
+		for(int i : order) bytes.putLong(keys[i]).putInt(cells[i]);
+
+		Files.write(path, bytes.array());
+	}
+}
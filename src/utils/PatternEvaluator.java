@@ -0,0 +1,142 @@
+package utils;
+
+import game.Board;
+
+/**
+ * Evaluates boards with the weights of Heuristics.evaluate, using lookup tables built once.
+ *
+ * Every sequence lies along one maximal line of the board (a full row, column or diagonal),
+ * and the ends of a maximal line are the board's edges, so whether a sequence's sides are open
+ * depends only on that line. The score a line contributes is therefore a function of its
+ * occupancy pattern alone, and is precomputed for every pattern of every line length.
+ * The lines themselves come from the board's Geometry, so any board shape works.
+ *
+ * A line of length L is indexed by two L-bit masks, xMask | (oMask << L), and evaluating
+ * a board is one table lookup per line. Tables are built for each length the first time a
+ * board needs it; lines longer than TABLE_LENGTH would need too large a table and are counted directly.
+ */
+public class PatternEvaluator implements Evaluator {
+
+	// longest line scored from a table
+	static final int TABLE_LENGTH = 10;
+
+	// for each line length, the line's score from X's and from O's point of view, by pattern index
+	private static final int[][] X_SCORES = new int[TABLE_LENGTH + 1][];
+	private static final int[][] O_SCORES = new int[TABLE_LENGTH + 1][];
+	private static volatile int builtLength;	// tables exist for every length up to this
+
+	/**
+	 * Heuristic function, same result as Heuristics.evaluate.
+	 * @param board
+	 * @param player
+	 * @return
+	 */
+	public int evaluate(Board board, char player)
+	{
+		int[][] lines = board.getGeometry().getLines();
+		int needed = Math.min(board.getGeometry().getMaxLineLength(), TABLE_LENGTH);
+		if(needed > builtLength) buildTables(needed);
+
+		long xLow = board.getPlayerBits('X', 0);
+		long xHigh = board.getPlayerBits('X', 1);
+		long oLow = board.getPlayerBits('O', 0);
+		long oHigh = board.getPlayerBits('O', 1);
+		int[][] tables = player == 'X' ? X_SCORES : O_SCORES;
+
+		int total = 0;
+		for(int[] line : lines) {
+			int length = line.length;
+			long x = 0;
+			long o = 0;
+			for(int i = 0; i < length; i++) {
+				int c = line[i];
+				x |= ((c < 64 ? xLow : xHigh) >>> c & 1L) << i;
+				o |= ((c < 64 ? oLow : oHigh) >>> c & 1L) << i;
+			}
+			if(length <= TABLE_LENGTH) total += tables[length][(int)(x | (o << length))];
+			else total += player == 'X' ? score(x, o, length) - opponentScore(o, x, length) : score(o, x, length) - opponentScore(x, o, length);
+		}
+		return total;
+	}
+
+	/**
+	 * Builds the score tables of every line length up to maxLength that has none yet.
+	 * @param maxLength - at most TABLE_LENGTH
+	 */
+	private static synchronized void buildTables(int maxLength)
+	{
+		for(int length = Math.max(2, builtLength + 1); length <= maxLength; length++) {
+			X_SCORES[length] = new int[1 << (2 * length)];
+			O_SCORES[length] = new int[1 << (2 * length)];
+			for(int x = 0; x < (1 << length); x++) {
+				for(int o = 0; o < (1 << length); o++) {
+					if((x & o) != 0) continue;
+					int index = x | (o << length);
+					X_SCORES[length][index] = score(x, o, length) - opponentScore(o, x, length);
+					O_SCORES[length][index] = score(o, x, length) - opponentScore(x, o, length);
+				}
+			}
+		}
+		if(maxLength > builtLength) builtLength = maxLength;
+	}
+
+	/**
+	 * Points one line earns the player to move, with Heuristics.evaluate's weights.
+	 * @param mine - the player's pieces on the line
+	 * @param theirs - the other player's pieces on the line
+	 * @param length - length of the line
+	 * @return
+	 */
+	private static int score(long mine, long theirs, int length)
+	{
+		return 200 * count(mine, theirs, length, 2, 3) +
+				150 * count(mine, theirs, length, 1, 3) +
+				20 * count(mine, theirs, length, 2, 2) +
+				5 * count(mine, theirs, length, 1, 2);
+	}
+
+	/**
+	 * Points one line costs the player to move, for the other player's pieces.
+	 * @param mine - the other player's pieces on the line
+	 * @param theirs - the player's pieces on the line
+	 * @param length - length of the line
+	 * @return
+	 */
+	private static int opponentScore(long mine, long theirs, int length)
+	{
+		return 80 * count(mine, theirs, length, 2, 3) +
+				40 * count(mine, theirs, length, 1, 3) +
+				15 * count(mine, theirs, length, 2, 2) +
+				2 * count(mine, theirs, length, 1, 2);
+	}
+
+	/**
+	 * Counts the runs of exactly m pieces with n sides open on one line.
+	 * @param mine - the pieces forming runs
+	 * @param theirs - the other player's pieces
+	 * @param length - length of the line
+	 * @param n - number of sides open
+	 * @param m - length of run
+	 * @return
+	 */
+	static int count(long mine, long theirs, int length, int n, int m)
+	{
+		long empty = ~(mine | theirs) & ((1L << length) - 1);
+		int found = 0;
+		int i = 0;
+		while(i < length) {
+			if((mine & (1L << i)) == 0) {
+				i++;
+				continue;
+			}
+			int start = i;
+			while(i < length && (mine & (1L << i)) != 0) i++;
+
+			int open = 0;
+			if(start > 0 && (empty & (1L << (start - 1))) != 0) open++;
+			if(i < length && (empty & (1L << i)) != 0) open++;
+			if(i - start == m && open == n) found++;
+		}
+		return found;
+	}
+}
@@ -0,0 +1,191 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import game.Board;
+import game.GameState;
+import game.Geometry;
+
+/**
+ * Counts the positions reachable in exactly N moves (perft), to check move generation
+ * independently of evaluation and to measure its raw speed.
+ *
+ * Moves follow Board.isValidMove: a player's first piece may go anywhere, later pieces must
+ * touch one of their own. A position that is won or drawn is a leaf, whatever depth it is at.
+ * A player left without a legal move passes, as in FourInARow.play: the other player moves
+ * next, and the pass does not use up a move of depth.
+ *
+ * Usage: java utils.Perft [depth] [threads], or java utils.Perft verify [threads]
+ */
+public class Perft {
+
+	// leaf counts from the starting position (X at 2,3 and O at 2,2, X to move), by depth
+	private static final long[] START_COUNTS = { 1L, 7L, 45L, 429L, 3913L, 41142L, 404802L, 4340466L, 43017132L };
+
+	/**
+	 * Counts the leaves of the game tree below a position.
+	 * @param board - the position; left as it was on return
+	 * @param player - the player to move
+	 * @param depth - moves to look ahead
+	 * @return the number of leaves
+	 */
+	public static long perft(Board board, char player, int depth)
+	{
+		if(depth == 0 || board.isTerminal()) return 1;
+
+		char next = player == 'X' ? 'O' : 'X';
+		long low = board.getValidMoveMask(player, 0);
+		long high = board.getValidMoveMask(player, 1);
+
+		// no legal move in a game still going on: pass, the other player can move
+		if((low | high) == 0L) return perft(board, next, depth);
+
+		// the last ply only needs the moves counted
+		if(depth == 1) return Long.bitCount(low) + Long.bitCount(high);
+
+		long leaves = 0;
+		for(int word = 0; word < 2; word++) {
+			for(long moves = word == 0 ? low : high; moves != 0L; moves &= moves - 1) {
+				int cell = (word << 6) | Long.numberOfTrailingZeros(moves);
+				board.makeMove(cell, player);
+				leaves += perft(board, next, depth - 1);
+				board.unmakeMove(cell);
+			}
+		}
+		return leaves;
+	}
+
+	/**
+	 * Counts the leaves below each root move (divide).
+	 * If the player to move must pass, the root moves are the other player's.
+	 * @param state - the position and the player to move
+	 * @param depth - moves to look ahead, at least 1
+	 * @param threads - root moves to count at once, 1 or less counts them in order
+	 * @return leaf counts indexed by root move cell (row * cols + col), 0 for cells that are not moves
+	 */
+	public static long[] divide(GameState state, int depth, int threads)
+	{
+		if(depth < 1) throw new IllegalArgumentException("Divide needs a depth of at least 1.");
+
+		Board root = state.getBoard();
+		char current = state.getCurrentPlayer();
+		char other = current == 'X' ? 'O' : 'X';
+
+		// a root player with no legal move passes
+		boolean pass = !root.isTerminal() && !root.hasValidMove(current);
+		char player = pass ? other : current;
+		char next = pass ? current : other;
+
+		// root moves, in cell order
+		Geometry geometry = root.getGeometry();
+		int[] cells = new int[geometry.getCells()];
+		int moves = 0;
+		for(int word = 0; word < 2 && !root.isTerminal(); word++) {
+			for(long m = root.getValidMoveMask(player, word); m != 0L; m &= m - 1) {
+				cells[moves++] = (word << 6) | Long.numberOfTrailingZeros(m);
+			}
+		}
+
+		long[] counts = new long[geometry.getCells()];
+		if(threads <= 1) {
+			Board board = new Board(root);
+			for(int i = 0; i < moves; i++) {
+				int cell = cells[i];
+				board.makeMove(cell, player);
+				counts[cell] = perft(board, next, depth - 1);
+				board.unmakeMove(cell);
+			}
+			return counts;
+		}
+
+		// each root move is counted on its own board
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>();
+			for(int i = 0; i < moves; i++) {
+				int cell = cells[i];
+				futures.add(pool.submit(() -> {
+					Board board = new Board(root);
+					board.makeMove(cell, player);
+					return perft(board, next, depth - 1);
+				}));
+			}
+
+			for(int i = 0; i < moves; i++) {
+				counts[cells[i]] = futures.get(i).get();
+			}
+		}
+		catch(InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Parallel perft failed.", e);
+		}
+		finally {
+			pool.shutdown();
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the starting position FourInARow plays from.
+	 * @return
+	 */
+	public static GameState startPosition()
+	{
+		Board board = new Board();
+		board.placePiece(2, 3, 'X');
+		board.placePiece(2, 2, 'O');
+		return new GameState(board, 'X');
+	}
+
+	/**
+	 * Returns the known leaf count from the starting position.
+	 * @param depth
+	 * @return the count, or -1 if none is recorded for that depth
+	 */
+	public static long startCount(int depth)
+	{
+		return depth >= 0 && depth < START_COUNTS.length ? START_COUNTS[depth] : -1;
+	}
+
+	public static void main(String[] args)
+	{
+		if(args.length > 0 && args[0].equals("verify")) {
+			int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+			boolean ok = true;
+			for(int depth = 1; depth < START_COUNTS.length; depth++) {
+				long total = sum(divide(startPosition(), depth, threads));
+				boolean match = total == START_COUNTS[depth];
+				ok &= match;
+				System.out.println("perft(" + depth + ") = " + total + (match ? "" : ", expected " + START_COUNTS[depth]));
+			}
+			System.out.println(ok ? "All counts match." : "Counts differ from the recorded ones.");
+			if(!ok) System.exit(1);
+			return;
+		}
+
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+		long startTime = System.nanoTime();
+		long[] counts = divide(startPosition(), depth, threads);
+		double elapsedTime = (System.nanoTime() - startTime) / 1e9;
+
+		for(int cell = 0; cell < counts.length; cell++) {
+			if(counts[cell] == 0) continue;
+			System.out.println("[" + Geometry.STANDARD.rowOf(cell) + "," + Geometry.STANDARD.colOf(cell) + "]: " + counts[cell]);
+		}
+		long total = sum(counts);
+		System.out.println("perft(" + depth + ") = " + total);
+		System.out.println(String.format("%.3fs, %.0f nodes/s", elapsedTime, total / elapsedTime));
+	}
+
+	private static long sum(long[] counts)
+	{
+		long total = 0;
+		for(long c : counts) total += c;
+		return total;
+	}
+}
@@ -1,7 +1,5 @@
 package utils;
 
-import game.Board;
-
 // data class to assist in calculating heuristic
 public class PieceSequence {
 	// coordinates of one end point
@@ -32,7 +30,7 @@ public class PieceSequence {
 	 */
 	public PieceSequence(int p1_row, int p1_col, int p2_row, int p2_col)
 	{
-		if(!Board.isInBounds(p1_row, p1_col) || !Board.isInBounds(p2_row, p2_col)) {
+		if(Math.min(Math.min(p1_row, p1_col), Math.min(p2_row, p2_col)) < 0) {
 			throw new IllegalArgumentException("PieceSequence constructor was passed invalid arguments.");
 		}
 		
@@ -114,8 +112,10 @@ public class PieceSequence {
 		if(this == obj) return true;
 		if(obj == null || obj.getClass() != this.getClass()) return false;
 		
+		// compare the end points, distinct sequences can share a hash code
 		PieceSequence seq = (PieceSequence)obj;
-		return seq.hashCode() == this.hashCode();
+		return seq.start_row == start_row && seq.start_col == start_col &&
+			   seq.end_row == end_row && seq.end_col == end_col;
 	}
 	
 	@Override
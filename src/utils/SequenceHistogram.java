@@ -0,0 +1,115 @@
+package utils;
+
+import game.Board;
+import game.Geometry;
+
+/**
+ * Counts every sequence on the board by (player, length, sides open), in a single pass.
+ *
+ * A sequence is a maximal run of at least 2 of a player's pieces along a row, column or diagonal.
+ * A side is open when the cell just past that end is on the board and empty.
+ */
+public class SequenceHistogram {
+
+	// class members
+	private int maxLength;	// longest possible sequence on the scanned board
+	private int[] counts = new int[0];
+
+	/**
+	 * Constructor: an empty histogram.
+	 */
+	public SequenceHistogram()
+	{
+	}
+
+	/**
+	 * Constructor: the histogram of the given board.
+	 * @param board
+	 */
+	public SequenceHistogram(Board board)
+	{
+		scan(board);
+	}
+
+	/**
+	 * Replaces the counts with those of the given board.
+	 * @param board
+	 */
+	public void scan(Board board)
+	{
+		Geometry geometry = board.getGeometry();
+		maxLength = geometry.getMaxLineLength();
+		int size = 2 * (maxLength + 1) * 3;
+		if(counts.length != size) counts = new int[size];
+		else for(int i = 0; i < counts.length; i++) counts[i] = 0;
+
+		long[] x = { board.getPlayerBits('X', 0), board.getPlayerBits('X', 1) };
+		long[] o = { board.getPlayerBits('O', 0), board.getPlayerBits('O', 1) };
+		long[] empty = { ~(x[0] | o[0]), ~(x[1] | o[1]) };
+		scanPlayer(geometry, 0, x, empty);
+		scanPlayer(geometry, 1, o, empty);
+	}
+
+	/**
+	 * Returns the number of sequences with n sides open and of length m.
+	 * @param player - 'X' or 'O'
+	 * @param n - number of sides open
+	 * @param m - length of sequence
+	 * @return
+	 */
+	public int count(char player, int n, int m)
+	{
+		if(n < 0 || n > 2 || m < 0 || m > maxLength) return 0;
+		return counts[index(player == 'X' ? 0 : 1, m, n)];
+	}
+
+	/**
+	 * Finds the runs of one player's pieces in all four directions.
+	 * @param geometry - the board's shape
+	 * @param p - player index, 0 for X and 1 for O
+	 * @param bits - the player's pieces, by word
+	 * @param empty - the empty cells, by word
+	 */
+	private void scanPlayer(Geometry geometry, int p, long[] bits, long[] empty)
+	{
+		for(int d = 0; d < Geometry.DIRECTIONS.length; d++) {
+			int[] next = geometry.getNext(d);
+			int[] prev = geometry.getPrevious(d);
+
+			for(int word = 0; word < 2; word++) {
+				long pieces = bits[word];
+				while(pieces != 0L) {
+					int cell = (word << 6) | Long.numberOfTrailingZeros(pieces);
+					pieces &= pieces - 1;
+
+					// only start at the first piece of a run
+					int before = prev[cell];
+					if(before >= 0 && has(bits, before)) continue;
+
+					int length = 1;
+					int after = next[cell];
+					while(after >= 0 && has(bits, after)) {
+						length++;
+						after = next[after];
+					}
+					if(length < 2) continue;
+
+					int open = 0;
+					if(before >= 0 && has(empty, before)) open++;
+					if(after >= 0 && has(empty, after)) open++;
+					counts[index(p, length, open)]++;
+				}
+			}
+		}
+	}
+
+	private int index(int p, int length, int open)
+	{
+		return (p * (maxLength + 1) + length) * 3 + open;
+	}
+
+	private static boolean has(long[] bits, int cell)
+	{
+		return (bits[cell >>> 6] & (1L << cell)) != 0;
+	}
+}
@@ -0,0 +1,178 @@
+package utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file of solved positions: each record is a position hash and its exact
+ * game-theoretic value for the player to move.
+ *
+ * Records are 9 bytes, the hash (GameState.hash, so the side to move is included) then the value
+ * as a signed byte. The whole file is loaded into memory when opened, and new records are appended
+ * through a buffer. A run that is interrupted loses at most the unflushed records, and a record
+ * cut off halfway is dropped the next time the file is opened, so solving can resume where it stopped.
+ *
+ * Lookups may be shared between threads once nothing is being added.
+ */
+public class SolutionDatabase implements Closeable {
+	// values, for the player to move
+	public static final int WIN = 1;
+	public static final int DRAW = 0;
+	public static final int LOSS = -1;
+	public static final int UNKNOWN = -2;
+
+	private static final int RECORD_BYTES = 9;
+	private static final int FLUSH_INTERVAL = 4096;	// records between flushes
+
+	// class members: an open-addressing map from hash to value, 0 marks an empty slot
+	private long[] keys = new long[1 << 16];
+	private byte[] values = new byte[1 << 16];
+	private int size;
+	private boolean hasZeroKey;	// hash 0 cannot be stored in the slots
+	private byte zeroKeyValue;
+
+	private DataOutputStream out;
+	private int unflushed;
+
+	/**
+	 * Opens a database file, creating it if needed, and loads every complete record.
+	 * @param path
+	 * @return the database
+	 * @throws IOException if the file cannot be read or opened for appending
+	 */
+	public static SolutionDatabase open(Path path) throws IOException
+	{
+		SolutionDatabase db = new SolutionDatabase();
+
+		if(Files.exists(path)) {
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				// drop a record the last run only partly wrote
+				long complete = channel.size() - channel.size() % RECORD_BYTES;
+				if(complete < channel.size()) channel.truncate(complete);
+
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, complete);
+				while(buffer.remaining() >= RECORD_BYTES) db.remember(buffer.getLong(), buffer.get());
+			}
+		}
+
+		db.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16));
+		return db;
+	}
+
+	/**
+	 * Looks up a position.
+	 * @param key - the position's hash, GameState.hash(board, player to move)
+	 * @return WIN, DRAW or LOSS for the player to move, or UNKNOWN if not solved
+	 */
+	public int get(long key)
+	{
+		if(key == 0) return hasZeroKey ? zeroKeyValue : UNKNOWN;
+
+		int mask = keys.length - 1;
+		for(int i = (int)(key ^ (key >>> 32)) & mask; keys[i] != 0; i = (i + 1) & mask) {
+			if(keys[i] == key) return values[i];
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Records a solved position, unless it is already known.
+	 * @param key - the position's hash
+	 * @param value - WIN, DRAW or LOSS for the player to move
+	 */
+	public void put(long key, int value)
+	{
+		if(!remember(key, (byte)value)) return;
+
+		try {
+			out.writeLong(key);
+			out.writeByte(value);
+			if(++unflushed >= FLUSH_INTERVAL) flush();
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException("Could not append to the solution database.", e);
+		}
+	}
+
+	/**
+	 * Writes every buffered record to the file.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException
+	{
+		out.flush();
+		unflushed = 0;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		out.close();
+	}
+
+	/**
+	 * Returns the number of solved positions.
+	 * @return
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Adds a record to the in-memory map.
+	 * @param key
+	 * @param value
+	 * @return true if the key was new
+	 */
+	private boolean remember(long key, byte value)
+	{
+		if(key == 0) {
+			if(hasZeroKey) return false;
+			hasZeroKey = true;
+			zeroKeyValue = value;
+			size++;
+			return true;
+		}
+
+		// keep the map at most half full
+		if(2 * (size + 1) > keys.length) grow();
+
+		int mask = keys.length - 1;
+		int i = (int)(key ^ (key >>> 32)) & mask;
+		while(keys[i] != 0) {
+			if(keys[i] == key) return false;
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		return true;
+	}
+
+	private void grow()
+	{
+		long[] oldKeys = keys;
+		byte[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new byte[oldValues.length * 2];
+
+		int mask = keys.length - 1;
+		for(int j = 0; j < oldKeys.length; j++) {
+			if(oldKeys[j] == 0) continue;
+			int i = (int)(oldKeys[j] ^ (oldKeys[j] >>> 32)) & mask;
+			while(keys[i] != 0) i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import game.Board;
+import game.GameState;
+import game.Geometry;
+
+/**
+ * Solves positions exactly: searches to the end of the game and finds whether the player to move
+ * wins, draws or loses with perfect play under Board's rules (a player with no valid move passes).
+ *
+ * Searches alpha-beta over the three values, with a transposition table for the whole tree.
+ * Exact results for positions with at most persistPieces pieces are appended to a SolutionDatabase,
+ * and the database is consulted before searching, so an interrupted solve resumes from what it saved.
+ *
+ * Usage: java utils.Solver [database file] [persist pieces]
+ */
+public class Solver {
+
+	// move ordering scores
+	private static final int TABLE_MOVE = 1 << 20;
+	private static final int BLOCKING_MOVE = 1 << 16;
+
+	// class members
+	private SolutionDatabase db;
+	private int persistPieces;
+	private TranspositionTable table;
+	private long nodes;
+
+	// move buffers, by number of pieces on the board; sized for the board being solved
+	private int[][] moves = new int[0][];
+	private int[][] scores = new int[0][];
+
+	/**
+	 * Constructor: a solver saving to the given database.
+	 * @param db - the database to read and append to
+	 * @param persistPieces - positions with at most this many pieces are saved
+	 */
+	public Solver(SolutionDatabase db, int persistPieces)
+	{
+		this.db = db;
+		this.persistPieces = persistPieces;
+		this.table = new TranspositionTable(22);
+	}
+
+	/**
+	 * Solves a position.
+	 * @param board
+	 * @param player - the player to move
+	 * @return SolutionDatabase.WIN, DRAW or LOSS for player
+	 */
+	public int solve(Board board, char player)
+	{
+		int cells = board.getGeometry().getCells();
+		if(moves.length != cells + 1) {
+			moves = new int[cells + 1][cells];
+			scores = new int[cells + 1][cells];
+		}
+		return negamax(new Board(board), player, SolutionDatabase.LOSS, SolutionDatabase.WIN);
+	}
+
+	/**
+	 * Returns the number of positions searched so far.
+	 * @return
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	private int negamax(Board board, char player, int alpha, int beta)
+	{
+		nodes++;
+		char other = player == 'X' ? 'O' : 'X';
+
+		// the previous move ended the game
+		if(board.isTerminal()) {
+			char winner = board.getWinner();
+			if(winner == 'd') return SolutionDatabase.DRAW;
+			return winner == player ? SolutionDatabase.WIN : SolutionDatabase.LOSS;
+		}
+
+		long key = GameState.hash(board, player);
+		int pieces = board.getPieceCount();
+		boolean persist = pieces <= persistPieces;
+		if(persist) {
+			int known = db.get(key);
+			if(known != SolutionDatabase.UNKNOWN) return known;
+		}
+
+		// reuse an earlier result for this position
+		int ttCell = -1;
+		long entry = table.probe(key);
+		if(entry != 0) {
+			int score = TranspositionTable.score(entry);
+			int bound = TranspositionTable.bound(entry);
+			if(bound == TranspositionTable.EXACT) return score;
+			if(bound == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+			else beta = Math.min(beta, score);
+			if(alpha >= beta) return score;
+			ttCell = TranspositionTable.bestCell(entry);
+		}
+		int alphaOrig = alpha;
+
+		int v;
+		int bestCell = -1;
+		if(!board.hasValidMove(player)) {
+			// no valid move, pass
+			v = -negamax(board, other, -beta, -alpha);
+		}
+		else {
+			// buffers are indexed by piece count, a pass never follows a pass
+			int[] moves = this.moves[pieces];
+			int count = orderMoves(board, player, ttCell, moves, scores[pieces]);
+			if(count < 0) {
+				// a move wins on the spot
+				v = SolutionDatabase.WIN;
+				bestCell = moves[0];
+			}
+			else {
+				v = SolutionDatabase.LOSS - 1;
+				for(int i = 0; i < count; i++) {
+					int cell = moves[i];
+					board.makeMove(cell, player);
+					int res = -negamax(board, other, -beta, -alpha);
+					board.unmakeMove(cell);
+
+					if(res > v) {
+						v = res;
+						bestCell = cell;
+					}
+					if(v > alpha) alpha = v;
+					if(alpha >= beta) break;
+				}
+			}
+		}
+
+		int bound = v <= alphaOrig ? TranspositionTable.UPPER : v >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		table.store(key, 0, bound, v, bestCell);
+
+		// a bound is exact when it is already the best or worst possible value
+		if(persist && (bound == TranspositionTable.EXACT || v == SolutionDatabase.WIN || v == SolutionDatabase.LOSS)) {
+			db.put(key, v);
+		}
+		return v;
+	}
+
+	/**
+	 * Fills moves with the player's valid moves, most promising first: the table move,
+	 * then moves that block an immediate win, then moves near other pieces.
+	 * @param board
+	 * @param player
+	 * @param ttCell - the table move, or -1
+	 * @param moves - receives the moves
+	 * @param scores - scratch space for the scores
+	 * @return the number of moves, or -1 if moves[0] wins immediately
+	 */
+	private int orderMoves(Board board, char player, int ttCell, int[] moves, int[] scores)
+	{
+		int words = board.getGeometry().getWords();
+
+		// any winning move decides the position
+		for(int word = 0; word < words; word++) {
+			for(long m = board.getValidMoveMask(player, word); m != 0L; m &= m - 1) {
+				int cell = (word << 6) | Long.numberOfTrailingZeros(m);
+				board.makeMove(cell, player);
+				boolean wins = board.getWinner() == player;
+				board.unmakeMove(cell);
+				if(wins) {
+					moves[0] = cell;
+					return -1;
+				}
+			}
+		}
+
+		// cells where the opponent would win next move
+		char other = player == 'X' ? 'O' : 'X';
+		long[] threats = new long[2];
+		for(int word = 0; word < words; word++) {
+			for(long m = board.getValidMoveMask(other, word) & board.getValidMoveMask(player, word); m != 0L; m &= m - 1) {
+				int cell = (word << 6) | Long.numberOfTrailingZeros(m);
+				board.makeMove(cell, other);
+				if(board.getWinner() == other) threats[word] |= 1L << cell;
+				board.unmakeMove(cell);
+			}
+		}
+
+		int count = 0;
+		for(int word = 0; word < words; word++) {
+			for(long m = board.getValidMoveMask(player, word); m != 0L; m &= m - 1) {
+				int cell = (word << 6) | Long.numberOfTrailingZeros(m);
+				int score = 16 * board.countNeighbors(cell);
+				if(cell == ttCell) score += TABLE_MOVE;
+				if((threats[word] & (1L << cell)) != 0) score += BLOCKING_MOVE;
+
+				// insertion sort, highest score first
+				int j = count++;
+				while(j > 0 && scores[j - 1] < score) {
+					moves[j] = moves[j - 1];
+					scores[j] = scores[j - 1];
+					j--;
+				}
+				moves[j] = cell;
+				scores[j] = score;
+			}
+		}
+		return count;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		Path path = Paths.get(args.length > 0 ? args[0] : "solutions.db");
+		int persistPieces = args.length > 1 ? Integer.parseInt(args[1]) : Geometry.STANDARD.getCells();
+
+		try(SolutionDatabase db = SolutionDatabase.open(path)) {
+			int known = db.size();
+			Solver solver = new Solver(db, persistPieces);
+
+			Board board = new Board();
+			board.placePiece(2, 3, 'X');
+			board.placePiece(2, 2, 'O');
+
+			long startTime = System.nanoTime();
+			int value = solver.solve(board, 'X');
+			double elapsedTime = (System.nanoTime() - startTime) / 1e9;
+
+			String result = value == SolutionDatabase.WIN ? "X wins" : value == SolutionDatabase.LOSS ? "O wins" : "draw";
+			System.out.println("Start position: " + result + " with perfect play.");
+			System.out.println(String.format("%d nodes in %.1fs, %d positions saved (%d loaded)",
+					solver.getNodes(), elapsedTime, db.size(), known));
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table of previously searched positions, keyed by Zobrist hash.
+ *
+ * Each slot holds one position. An entry is packed into a single long:
+ *   bits  0-31  score
+ *   bits 32-39  remaining search depth
+ *   bits 40-41  bound type (EXACT, LOWER or UPPER)
+ *   bits 42-49  best move cell + 1 (0 if none)
+ *   bits 50-57  search generation
+ *   bits 58-63  id of the search thread that wrote it
+ *
+ * Replacement policy: a slot is overwritten when it is empty, holds the same position,
+ * was written by an earlier search, or the new result is at least as deep.
+ *
+ * The table is safe to share between search threads without locks. A slot's key is stored
+ * XORed with its entry, so a slot torn by two threads writing at once fails verification
+ * and reads as a miss instead of returning another position's result.
+ */
+public class TranspositionTable {
+	// bound types, never 0 so a stored entry is never 0
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;	// score is a lower bound (search failed high)
+	public static final int UPPER = 3;	// score is an upper bound (search failed low)
+
+	// class members
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+	private int generation;
+
+	// statistics, striped so threads do not contend on them
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+
+	/**
+	 * Constructor: allocates a table with 2^sizeBits slots.
+	 * @param sizeBits
+	 */
+	public TranspositionTable(int sizeBits)
+	{
+		if(sizeBits < 1 || sizeBits > 30) {
+			throw new IllegalArgumentException("TranspositionTable size must be between 2^1 and 2^30 slots.");
+		}
+		keys = new long[1 << sizeBits];
+		entries = new long[1 << sizeBits];
+		mask = (1 << sizeBits) - 1;
+	}
+
+	/**
+	 * Marks the start of a new search, so entries from earlier searches become replaceable.
+	 */
+	public void newSearch()
+	{
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/**
+	 * Looks up a position.
+	 * @param key - the position's hash
+	 * @return the packed entry, or 0 if the position is not stored
+	 */
+	public long probe(long key)
+	{
+		int index = (int)key & mask;
+		long entry = entries[index];
+
+		if(entry != 0 && (keys[index] ^ entry) == key) {
+			hits.increment();
+			return entry;
+		}
+
+		// slot holds some other position (or was torn by concurrent writes)
+		if(entry != 0) collisions.increment();
+		misses.increment();
+		return 0;
+	}
+
+	/**
+	 * Stores a search result, subject to the replacement policy.
+	 * @param key - the position's hash
+	 * @param depth - remaining depth the position was searched to
+	 * @param bound - EXACT, LOWER or UPPER
+	 * @param score - the search score
+	 * @param bestCell - cell of the best move, or -1 if none
+	 */
+	public void store(long key, int depth, int bound, int score, int bestCell)
+	{
+		store(key, depth, bound, score, bestCell, 0);
+	}
+
+	/**
+	 * Stores a search result on behalf of one of several search threads.
+	 * @param key - the position's hash
+	 * @param depth - remaining depth the position was searched to
+	 * @param bound - EXACT, LOWER or UPPER
+	 * @param score - the search score
+	 * @param bestCell - cell of the best move, or -1 if none
+	 * @param owner - id of the storing thread, 0-63
+	 * @return true if this replaced another thread's entry for a different position
+	 */
+	public boolean store(long key, int depth, int bound, int score, int bestCell, int owner)
+	{
+		int index = (int)key & mask;
+		long old = entries[index];
+		boolean samePosition = old != 0 && (keys[index] ^ old) == key;
+
+		if(old != 0 && !samePosition && generation(old) == generation && depth(old) > depth) return false;
+
+		// keep the old best move if this search did not find one
+		if(bestCell < 0 && samePosition) bestCell = bestCell(old);
+
+		long entry = pack(depth, bound, score, bestCell, owner);
+		keys[index] = key ^ entry;
+		entries[index] = entry;
+		return old != 0 && !samePosition && owner(old) != owner;
+	}
+
+	/**
+	 * Clears every entry and statistic.
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, 0L);
+		Arrays.fill(entries, 0L);
+		generation = 0;
+		resetStats();
+	}
+
+	/**
+	 * Resets the hit, miss and collision counters.
+	 */
+	public void resetStats()
+	{
+		hits.reset();
+		misses.reset();
+		collisions.reset();
+	}
+
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of probes that found a different position in the slot.
+	 * @return
+	 */
+	public long getCollisions()
+	{
+		return collisions.sum();
+	}
+
+	public int size()
+	{
+		return entries.length;
+	}
+
+	/*** packed entry accessors ***/
+
+	public static int score(long entry)
+	{
+		return (int)entry;
+	}
+
+	public static int depth(long entry)
+	{
+		return (int)(entry >>> 32) & 0xFF;
+	}
+
+	public static int bound(long entry)
+	{
+		return (int)(entry >>> 40) & 0x3;
+	}
+
+	/**
+	 * Returns the cell of the stored best move.
+	 * @param entry
+	 * @return the cell (row * COLS + col), or -1 if none
+	 */
+	public static int bestCell(long entry)
+	{
+		return ((int)(entry >>> 42) & 0xFF) - 1;
+	}
+
+	/**
+	 * Returns the id of the search thread that stored the entry.
+	 * @param entry
+	 * @return
+	 */
+	public static int owner(long entry)
+	{
+		return (int)(entry >>> 58);
+	}
+
+	private static int generation(long entry)
+	{
+		return (int)(entry >>> 50) & 0xFF;
+	}
+
+	private long pack(int depth, int bound, int score, int bestCell, int owner)
+	{
+		return (score & 0xFFFFFFFFL)
+				| ((long)(depth & 0xFF) << 32)
+				| ((long)bound << 40)
+				| ((long)((bestCell + 1) & 0xFF) << 42)
+				| ((long)generation << 50)
+				| ((long)(owner & 0x3F) << 58);
+	}
+}